@@ -0,0 +1,54 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.analysis.AnalysisPass;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each analysis pass on its own, over the annotated ASTs of a whole corpus per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalysisPassBenchmark {
+
+    private static final String PASSES_PACKAGE = "pt.up.fe.comp2024.analysis.passes.";
+
+    @Param({"UndeclaredVariable", "InvalidMethodDecl", "InvalidConditions", "InvalidOperations",
+            "InvalidAssignments", "InvalidVars"})
+    public String pass;
+
+    private Constructor<? extends AnalysisPass> passConstructor;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        passConstructor = Class.forName(PASSES_PACKAGE + pass)
+                .asSubclass(AnalysisPass.class)
+                .getDeclaredConstructor();
+    }
+
+    @Benchmark
+    public void analyze(CorpusState state, Blackhole blackhole) throws ReflectiveOperationException {
+        for (var semanticsResult : state.semanticsResults) {
+            // Passes accumulate reports, so each file gets a new one
+            var analysisPass = passConstructor.newInstance();
+            blackhole.consume(analysisPass.analyze(semanticsResult.getRootNode(), semanticsResult.getSymbolTable()));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.backend.ClassFileGenerator;
+import pt.up.fe.comp2024.backend.JasminGenerator;
+import pt.up.fe.comp2024.optimization.OllirGeneratorVisitor;
+import pt.up.fe.comp2024.optimization.RegisterAllocator;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OLLIR generation, OLLIR parsing, register allocation and Jasmin or class file generation of a whole corpus per
+ * operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackendBenchmark {
+
+    /**
+     * The register allocator changes the class it is given, so every operation gets new ones.
+     */
+    @State(Scope.Thread)
+    public static class FreshOllir {
+
+        public List<OllirResult> ollirResults;
+
+        @Setup(Level.Invocation)
+        public void setup(CorpusState state) {
+            ollirResults = state.newOllirResults();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OutputDir {
+
+        public File dir;
+
+        @Setup
+        public void setup() throws IOException {
+            dir = Files.createTempDirectory("jmm-bench").toFile();
+        }
+
+        @TearDown
+        public void tearDown() {
+            SpecsIo.deleteFolder(dir);
+        }
+    }
+
+    @Benchmark
+    public void ollirGeneration(CorpusState state, Blackhole blackhole) {
+        for (var semanticsResult : state.semanticsResults) {
+            var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+            blackhole.consume(visitor.visit(semanticsResult.getRootNode()));
+        }
+    }
+
+    /**
+     * Turning the OLLIR code into the class the backend works on, done by the OLLIR library.
+     */
+    @Benchmark
+    public void ollirParsing(CorpusState state, Blackhole blackhole) {
+        for (int i = 0; i < state.ollirCodes.size(); i++) {
+            blackhole.consume(new OllirResult(state.semanticsResults.get(i), state.ollirCodes.get(i),
+                    Collections.emptyList()));
+        }
+    }
+
+    @Benchmark
+    public void registerAllocation(FreshOllir fresh, Blackhole blackhole) {
+        for (var ollirResult : fresh.ollirResults) {
+            new RegisterAllocator(ollirResult, -1).allocateReg();
+            blackhole.consume(ollirResult.getOllirClass());
+        }
+    }
+
+    @Benchmark
+    public void jasminGeneration(CorpusState state, Blackhole blackhole) {
+        for (var ollirResult : state.ollirResults) {
+            blackhole.consume(new JasminGenerator(ollirResult).build());
+        }
+    }
+
+    /**
+     * Jasmin generation followed by jasmin.jar, the whole way from OLLIR to class files when emitting Jasmin.
+     */
+    @Benchmark
+    public void jasminAssembly(CorpusState state, OutputDir output, Blackhole blackhole) {
+        for (var ollirResult : state.ollirResults) {
+            var jasminCode = new JasminGenerator(ollirResult).build();
+            blackhole.consume(new JasminResult(ollirResult, jasminCode, Collections.emptyList()).compile(output.dir));
+        }
+    }
+
+    @Benchmark
+    public void classFileGeneration(CorpusState state, Blackhole blackhole) {
+        for (var ollirResult : state.ollirResults) {
+            blackhole.consume(new ClassFileGenerator(ollirResult).build());
+        }
+    }
+
+    /**
+     * Jasmin generation without keeping the code, as when it is written straight to a file.
+     */
+    @Benchmark
+    public void jasminStreaming(CorpusState state) {
+        for (var ollirResult : state.ollirResults) {
+            new JasminGenerator(ollirResult).build(Writer.nullWriter());
+        }
+    }
+}
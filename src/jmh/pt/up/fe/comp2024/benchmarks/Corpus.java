@@ -0,0 +1,88 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inputs of the benchmarks.
+ * <p>
+ * The cpf corpus is a fixed list of files from the course tests that go through every stage without errors, so the
+ * numbers stay comparable as the tests change. The synthetic corpus is one large class from
+ * {@link SyntheticProgramGenerator}.
+ */
+public class Corpus {
+
+    public static final String CPF = "cpf";
+    public static final String SYNTHETIC = "synthetic";
+
+    private static final String CPF_DIR = "test/pt/up/fe/comp/cpf/";
+
+    private static final List<String> CPF_FILES = List.of(
+            "1_parser_and_tree/AddMultConstants.jmm",
+            "2_semantic_analysis/import/ImportSuper.jmm",
+            "2_semantic_analysis/lookup/VarLookup_Field.jmm",
+            "2_semantic_analysis/symboltable/MethodsAndFields.jmm",
+            "2_semantic_analysis/symboltable/Parameters.jmm",
+            "3_ollir/arithmetic/Arithmetic_and.jmm",
+            "3_ollir/arithmetic/Arithmetic_less.jmm",
+            "3_ollir/arithmetic/Arithmetic_not.jmm",
+            "3_ollir/arrays/ArrayAccess.jmm",
+            "3_ollir/arrays/ArrayInit.jmm",
+            "3_ollir/arrays/ArrayInitialization.jmm",
+            "3_ollir/arrays/ArrayVarArgs.jmm",
+            "3_ollir/arrays/ComplexArrayAccess.jmm",
+            "3_ollir/arrays/VarargsAndArrayInit.jmm",
+            "3_ollir/basic/BasicMethodsArray.jmm",
+            "3_ollir/control_flow/IfElseInMain.jmm",
+            "3_ollir/control_flow/SimpleIfElseStat.jmm",
+            "3_ollir/control_flow/SimpleWhileStat.jmm",
+            "3_ollir/control_flow/SwitchStat.jmm",
+            "4_jasmin/arithmetic/ByteCodeIndexes1.jmm",
+            "4_jasmin/arithmetic/ByteCodeIndexes2.jmm",
+            "4_jasmin/arrays/ArrayAsArg.jmm",
+            "4_jasmin/control_flow/IfWhileNested.jmm",
+            "4_jasmin/control_flow/SimpleControlFlow.jmm",
+            "4_jasmin/control_flow/SimpleIfElseNot.jmm",
+            "5_optimizations/const_prop/PropSimple.jmm",
+            "5_optimizations/const_prop/PropWithLoop.jmm",
+            "5_optimizations/inst_selection/InstSelection_bipush_6.jmm",
+            "5_optimizations/inst_selection/InstSelection_iconst_0.jmm",
+            "5_optimizations/inst_selection/InstSelection_if_lt.jmm",
+            "5_optimizations/inst_selection/InstSelection_iinc.jmm",
+            "5_optimizations/inst_selection/InstSelection_ldc_32768.jmm",
+            "5_optimizations/inst_selection/InstSelection_load_1.jmm",
+            "5_optimizations/inst_selection/InstSelection_sipush_32767.jmm",
+            "5_optimizations/inst_selection/InstSelection_store_1.jmm",
+            "5_optimizations/reg_alloc/regalloc.jmm"
+    );
+
+    /**
+     * @return the source code of every file of the given corpus
+     */
+    public static List<String> load(String corpus) {
+        return switch (corpus) {
+            case CPF -> loadCpf();
+            case SYNTHETIC -> List.of(new SyntheticProgramGenerator().methods(100).statementDepth(4).generate());
+            default -> throw new RuntimeException("Unknown corpus '" + corpus + "'");
+        };
+    }
+
+    private static List<String> loadCpf() {
+        List<String> sources = new ArrayList<>();
+
+        for (var file : CPF_FILES) {
+            var source = new File(CPF_DIR + file);
+            if (!source.isFile()) {
+                throw new RuntimeException("Could not find '" + source.getAbsolutePath()
+                        + "', benchmarks must run from the project directory");
+            }
+
+            sources.add(SpecsIo.read(source));
+        }
+
+        return sources;
+    }
+}
@@ -0,0 +1,22 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One of the {@link Corpus corpora}, with the result of every stage on it.
+ */
+@State(Scope.Benchmark)
+public class CorpusState extends StageInputs {
+
+    @Param({Corpus.CPF, Corpus.SYNTHETIC})
+    public String corpus;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        prepare(Corpus.load(corpus));
+    }
+}
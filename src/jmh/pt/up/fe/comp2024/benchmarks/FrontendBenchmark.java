@@ -0,0 +1,56 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and semantic analysis of a whole corpus per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FrontendBenchmark {
+
+    private final JmmParserImpl parser = new JmmParserImpl();
+    private final JmmAnalysisImpl analysis = new JmmAnalysisImpl();
+
+    @Benchmark
+    public void parse(CorpusState state, Blackhole blackhole) {
+        for (var source : state.sources) {
+            blackhole.consume(parser.parse(source, state.config));
+        }
+    }
+
+    @Benchmark
+    public void buildSymbolTable(CorpusState state, Blackhole blackhole) {
+        for (var parserResult : state.parserResults) {
+            blackhole.consume(JmmSymbolTableBuilder.build(parserResult.getRootNode()));
+        }
+    }
+
+    /**
+     * Symbol table, type inference and every pass, as the compiler runs them.
+     */
+    @Benchmark
+    public void semanticAnalysis(CorpusState state, Blackhole blackhole) {
+        for (var parserResult : state.parserResults) {
+            blackhole.consume(analysis.semanticAnalysis(parserResult));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminGenerator;
+import pt.up.fe.comp2024.optimization.OllirGeneratorVisitor;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of each stage on generated programs, growing one dimension of the program at a time.
+ * <p>
+ * Every knob of {@link SyntheticProgramGenerator} starts at a small base value and is multiplied by the scale, with
+ * the others left at their base, so the results of a knob over all scales are a compile-time-vs-size curve. Run
+ * only some of them with e.g. {@code -PjmhArgs="Scaling -p knob=methods"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class ScalingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ProgramState extends StageInputs {
+
+        @Param({"methods", "statementDepth", "expressionDepth", "fields", "arrayLiteralSize", "imports"})
+        public String knob;
+
+        @Param({"1", "4", "16", "64"})
+        public int scale;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            prepare(List.of(getGenerator(knob, scale).generate()));
+        }
+
+        private static SyntheticProgramGenerator getGenerator(String knob, int scale) {
+            var generator = new SyntheticProgramGenerator()
+                    .methods(32)
+                    .statementsPerBlock(4)
+                    .statementDepth(2)
+                    .expressionDepth(2)
+                    .fields(16)
+                    .arrayLiteralSize(16)
+                    .imports(4);
+
+            // At the largest scale, e.g. 2048 methods in about 65k lines
+            return switch (knob) {
+                case "methods" -> generator.methods(32 * scale);
+                case "statementDepth" -> generator.statementDepth(2 * scale);
+                case "expressionDepth" -> generator.expressionDepth(2 * scale);
+                case "fields" -> generator.fields(16 * scale);
+                case "arrayLiteralSize" -> generator.arrayLiteralSize(16 * scale);
+                case "imports" -> generator.imports(4 * scale);
+                default -> throw new RuntimeException("Unknown knob '" + knob + "'");
+            };
+        }
+    }
+
+    /**
+     * Stage implementations, reused between operations as the compiler does.
+     */
+    @State(Scope.Benchmark)
+    public static class Stages {
+
+        public final JmmParserImpl parser = new JmmParserImpl();
+        public final JmmAnalysisImpl analysis = new JmmAnalysisImpl();
+    }
+
+    @Benchmark
+    public void parse(ProgramState program, Stages stages, Blackhole blackhole) {
+        for (var source : program.sources) {
+            blackhole.consume(stages.parser.parse(source, program.config));
+        }
+    }
+
+    @Benchmark
+    public void semanticAnalysis(ProgramState program, Stages stages, Blackhole blackhole) {
+        for (var parserResult : program.parserResults) {
+            blackhole.consume(stages.analysis.semanticAnalysis(parserResult));
+        }
+    }
+
+    @Benchmark
+    public void ollirGeneration(ProgramState program, Blackhole blackhole) {
+        for (var semanticsResult : program.semanticsResults) {
+            var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+            blackhole.consume(visitor.visit(semanticsResult.getRootNode()));
+        }
+    }
+
+    @Benchmark
+    public void ollirParsing(ProgramState program, Blackhole blackhole) {
+        for (int i = 0; i < program.ollirCodes.size(); i++) {
+            blackhole.consume(new OllirResult(program.semanticsResults.get(i), program.ollirCodes.get(i),
+                    Collections.emptyList()));
+        }
+    }
+
+    @Benchmark
+    public void jasminGeneration(ProgramState program, Blackhole blackhole) {
+        for (var ollirResult : program.ollirResults) {
+            blackhole.consume(new JasminGenerator(ollirResult).build());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.optimization.OllirGeneratorVisitor;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Some sources together with the result of every stage on them, so each benchmark only measures its own stage.
+ */
+public abstract class StageInputs {
+
+    public Map<String, String> config;
+    public List<String> sources;
+    public List<JmmParserResult> parserResults;
+    public List<JmmSemanticsResult> semanticsResults;
+    public List<String> ollirCodes;
+    public List<OllirResult> ollirResults;
+
+    protected void prepare(List<String> sources) {
+        this.config = CompilerConfig.getDefault();
+        this.sources = sources;
+
+        var parser = new JmmParserImpl();
+        var analysis = new JmmAnalysisImpl();
+
+        parserResults = new ArrayList<>();
+        semanticsResults = new ArrayList<>();
+        ollirCodes = new ArrayList<>();
+        ollirResults = new ArrayList<>();
+
+        for (var source : sources) {
+            var parserResult = parser.parse(source, config);
+            check(!ReportUtils.anyError(parserResult.getReports()), source);
+            parserResults.add(parserResult);
+
+            // Also stores the inferred types in the AST, which the passes and the OLLIR generator read
+            var semanticsResult = analysis.semanticAnalysis(parserResult);
+            check(!ReportUtils.anyError(semanticsResult.getReports()), source);
+            semanticsResults.add(semanticsResult);
+
+            var ollirCode = new OllirGeneratorVisitor(semanticsResult.getSymbolTable())
+                    .visit(semanticsResult.getRootNode());
+            ollirCodes.add(ollirCode);
+            ollirResults.add(new OllirResult(semanticsResult, ollirCode, Collections.emptyList()));
+        }
+    }
+
+    /**
+     * @return new OLLIR results for all the sources, for stages that change the class they are given
+     */
+    public List<OllirResult> newOllirResults() {
+        List<OllirResult> results = new ArrayList<>();
+
+        for (int i = 0; i < ollirCodes.size(); i++) {
+            results.add(new OllirResult(semanticsResults.get(i), ollirCodes.get(i), Collections.emptyList()));
+        }
+
+        return results;
+    }
+
+    private static void check(boolean valid, String source) {
+        if (!valid) {
+            throw new RuntimeException("Benchmark input does not compile:\n" + source);
+        }
+    }
+}
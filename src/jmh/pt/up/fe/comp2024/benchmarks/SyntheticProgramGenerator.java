@@ -0,0 +1,205 @@
+package pt.up.fe.comp2024.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generates valid Java-- programs of a given size, to see how each stage scales with inputs much larger than the
+ * test files.
+ * <p>
+ * The program is a single class with some imports, int fields and methods. Every method declares the same locals,
+ * fills an array with an array literal and then runs a body of assignments, method calls and nested loops and
+ * conditionals. Each knob grows one dimension of the program, and the size of everything else grows linearly with
+ * it (e.g. nesting deeper does not double the statements). The same knobs and seed always give the same program.
+ */
+public class SyntheticProgramGenerator {
+
+    private static final String[] ARITHMETIC_OPS = {"+", "-", "*", "/"};
+
+    private int methods = 10;
+    private int statementsPerBlock = 5;
+    private int statementDepth = 2;
+    private int expressionDepth = 4;
+    private int fields = 4;
+    private int arrayLiteralSize = 4;
+    private int imports = 2;
+    private long seed = 42;
+
+    private Random random;
+    private StringBuilder code;
+
+    public SyntheticProgramGenerator methods(int methods) {
+        this.methods = methods;
+        return this;
+    }
+
+    public SyntheticProgramGenerator statementsPerBlock(int statementsPerBlock) {
+        this.statementsPerBlock = statementsPerBlock;
+        return this;
+    }
+
+    /**
+     * How many loops and conditionals are nested inside each other in every method.
+     */
+    public SyntheticProgramGenerator statementDepth(int statementDepth) {
+        this.statementDepth = statementDepth;
+        return this;
+    }
+
+    /**
+     * How many binary operations are nested inside each other in every expression.
+     */
+    public SyntheticProgramGenerator expressionDepth(int expressionDepth) {
+        this.expressionDepth = expressionDepth;
+        return this;
+    }
+
+    public SyntheticProgramGenerator fields(int fields) {
+        this.fields = fields;
+        return this;
+    }
+
+    public SyntheticProgramGenerator arrayLiteralSize(int arrayLiteralSize) {
+        this.arrayLiteralSize = arrayLiteralSize;
+        return this;
+    }
+
+    public SyntheticProgramGenerator imports(int imports) {
+        this.imports = imports;
+        return this;
+    }
+
+    public SyntheticProgramGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public String generate() {
+        random = new Random(seed);
+        code = new StringBuilder();
+
+        for (int i = 0; i < imports; i++) {
+            code.append("import pkg").append(i).append(".Import").append(i).append(";\n");
+        }
+        code.append("\n");
+
+        code.append("class Synthetic {\n");
+        for (int i = 0; i < fields; i++) {
+            code.append("    int field").append(i).append(";\n");
+        }
+        code.append("\n");
+
+        for (int i = 0; i < methods; i++) {
+            generateMethod(i);
+        }
+
+        code.append("    public static void main(String[] args) {\n");
+        code.append("    }\n");
+        code.append("}\n");
+
+        return code.toString();
+    }
+
+    private void generateMethod(int index) {
+        code.append("    public int method").append(index).append("(int a, int b) {\n");
+        code.append("        int x;\n");
+        code.append("        int i;\n");
+        code.append("        int[] values;\n");
+        code.append("        boolean flag;\n");
+
+        indent(2).append("values = [");
+        for (int i = 0; i < arrayLiteralSize; i++) {
+            code.append(i == 0 ? "" : ", ").append(random.nextInt(1000));
+        }
+        code.append("];\n");
+        indent(2).append("x = a;\n");
+        indent(2).append("i = 0;\n");
+        indent(2).append("flag = true;\n");
+
+        // Calls the previous method, so method lookup is not only done on fields
+        if (index > 0) {
+            indent(2).append("x = this.method").append(index - 1).append("(x, b);\n");
+        }
+
+        generateBlock(statementDepth, 2);
+
+        indent(2).append("return x;\n");
+        code.append("    }\n\n");
+    }
+
+    private void generateBlock(int depth, int level) {
+        for (int i = 0; i < statementsPerBlock; i++) {
+            generateAssignment(level);
+        }
+
+        if (depth == 0) {
+            return;
+        }
+
+        // Alternates loops and conditionals, one of each nesting the rest of the block
+        if (depth % 2 == 0) {
+            indent(level).append("while (i < b) {\n");
+            generateBlock(depth - 1, level + 1);
+            indent(level + 1).append("i = i + 1;\n");
+            indent(level).append("}\n");
+        } else {
+            indent(level).append("if (").append(condition()).append(") {\n");
+            generateBlock(depth - 1, level + 1);
+            indent(level).append("} else {\n");
+            generateAssignment(level + 1);
+            indent(level).append("}\n");
+        }
+    }
+
+    private void generateAssignment(int level) {
+        switch (random.nextInt(4)) {
+            case 0 -> indent(level).append("flag = ").append(condition()).append(";\n");
+            case 1 -> indent(level).append("values[").append(random.nextInt(Math.max(1, arrayLiteralSize)))
+                    .append("] = ").append(expression(expressionDepth)).append(";\n");
+            case 2 -> {
+                if (fields > 0) {
+                    indent(level).append("field").append(random.nextInt(fields)).append(" = ")
+                            .append(expression(expressionDepth)).append(";\n");
+                } else {
+                    indent(level).append("x = ").append(expression(expressionDepth)).append(";\n");
+                }
+            }
+            default -> indent(level).append("x = ").append(expression(expressionDepth)).append(";\n");
+        }
+    }
+
+    private String condition() {
+        var condition = expression(expressionDepth / 2) + " < " + expression(expressionDepth / 2);
+
+        return random.nextBoolean() ? condition + " && flag" : "!(" + condition + ")";
+    }
+
+    /**
+     * An int expression with the given number of nested binary operations.
+     */
+    private String expression(int depth) {
+        var expression = new StringBuilder(operand());
+
+        // Nests to the right, so the expression grows linearly with its depth
+        for (int i = 0; i < depth; i++) {
+            expression.insert(0, operand() + " " + ARITHMETIC_OPS[random.nextInt(ARITHMETIC_OPS.length)] + " (");
+            expression.append(")");
+        }
+
+        return expression.toString();
+    }
+
+    private String operand() {
+        return switch (random.nextInt(6)) {
+            case 0 -> "a";
+            case 1 -> "x";
+            case 2 -> fields > 0 ? "field" + random.nextInt(fields) : "b";
+            case 3 -> "values[" + random.nextInt(Math.max(1, arrayLiteralSize)) + "]";
+            case 4 -> "values.length";
+            default -> String.valueOf(random.nextInt(100));
+        };
+    }
+
+    private StringBuilder indent(int level) {
+        return code.append("    ".repeat(level));
+    }
+}
@@ -0,0 +1,199 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.metrics.Metrics;
+import pt.up.fe.comp2024.metrics.MetricsReport;
+import pt.up.fe.comp2024.metrics.UnitMetrics;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compiles every .jmm file of a directory (or listed in a manifest) through a single {@link CompilationPipeline}.
+ * <p>
+ * One .j file is written per class into the output directory, together with a summary of the whole batch.
+ * Units are compiled in parallel on a work-stealing pool with '-j' threads; results are always written in input
+ * order, so the output does not depend on the number of threads. With '-t', the metrics of every unit are also
+ * written, in the same order.
+ */
+public class BatchCompiler {
+
+    public static final String SUMMARY_FILENAME = "batch-summary.txt";
+
+    private static final String NL = "\n";
+
+    private final Map<String, String> config;
+    private final CompilationPipeline pipeline;
+
+    public BatchCompiler(Map<String, String> config) {
+        this.config = config;
+        this.pipeline = CompilationPipeline.fromConfig(config);
+    }
+
+    /**
+     * Compiles all units and writes the results.
+     *
+     * @return the number of units that failed to compile
+     */
+    public int run() {
+        var batchInput = CompilerConfig.getBatchInput(config).orElseThrow();
+        var units = collectUnits(batchInput);
+        var outputDir = CompilerConfig.getOutputDir(config)
+                .orElse(batchInput.isDirectory() ? batchInput : batchInput.getAbsoluteFile().getParentFile());
+        SpecsIo.mkdir(outputDir);
+
+        long start = System.nanoTime();
+
+        var metricsFile = CompilerConfig.getMetricsFile(config);
+        var unitMetrics = metricsFile.isPresent() ? new UnitMetrics[units.size()] : null;
+        var results = compileAll(units, unitMetrics, CompilerConfig.getJobs(config));
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        metricsFile.ifPresent(file -> new MetricsReport(Arrays.asList(unitMetrics)).write(file));
+
+        return writeResults(units, results, outputDir, elapsedMillis);
+    }
+
+    /**
+     * Compiles every unit, storing the metrics of unit i in position i of the given array, if there is one.
+     */
+    private List<CompilationResult> compileAll(List<File> units, UnitMetrics[] unitMetrics, int jobs) {
+        if (jobs == 1) {
+            List<CompilationResult> results = new ArrayList<>();
+            for (int i = 0; i < units.size(); i++) {
+                results.add(compileUnit(units.get(i), unitMetrics, i));
+            }
+            return results;
+        }
+
+        List<Callable<CompilationResult>> tasks = new ArrayList<>();
+        for (int i = 0; i < units.size(); i++) {
+            int index = i;
+            tasks.add(() -> compileUnit(units.get(index), unitMetrics, index));
+        }
+
+        var pool = new ForkJoinPool(jobs);
+        try {
+            List<CompilationResult> results = new ArrayList<>();
+            for (var future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Batch compilation was interrupted", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private CompilationResult compileUnit(File unit, UnitMetrics[] unitMetrics, int index) {
+        if (unitMetrics == null) {
+            return compileUnit(unit);
+        }
+
+        unitMetrics[index] = Metrics.startUnit(unit.getPath());
+        try (var ignored = unitMetrics[index]) {
+            return compileUnit(unit);
+        }
+    }
+
+    private CompilationResult compileUnit(File unit) {
+        if (!unit.isFile()) {
+            return CompilationResult.failed(List.of(
+                    Report.newError(Stage.OTHER, -1, -1, "Could not find input file '" + unit + "'", null)));
+        }
+
+        try {
+            var code = SpecsIo.read(unit);
+            return pipeline.compile(code, CompilerConfig.withInputFile(config, unit));
+        } catch (RuntimeException e) {
+            return CompilationResult.failed(List.of(
+                    Report.newError(Stage.OTHER, -1, -1, "Exception during compilation", e)));
+        }
+    }
+
+    private int writeResults(List<File> units, List<CompilationResult> results, File outputDir, long elapsedMillis) {
+        var summary = new StringBuilder();
+        var producedBy = new HashMap<String, File>();
+        int failed = 0;
+
+        for (int i = 0; i < units.size(); i++) {
+            var unit = units.get(i);
+            var result = results.get(i);
+
+            if (result.isSuccess() && producedBy.containsKey(result.getClassName())) {
+                result = CompilationResult.failed(List.of(Report.newError(Stage.OTHER, -1, -1,
+                        "Class '" + result.getClassName() + "' is also defined in '"
+                                + producedBy.get(result.getClassName()) + "'", null)));
+            }
+
+            if (result.isSuccess()) {
+                var outputFile = result.writeTo(outputDir);
+                producedBy.put(result.getClassName(), unit);
+
+                summary.append("OK   ").append(unit).append(" -> ").append(outputFile.getName()).append(NL);
+            } else {
+                failed++;
+                summary.append("FAIL ").append(unit).append(NL);
+            }
+
+            for (var report : result.getReports()) {
+                if (report.getType() != ReportType.LOG) {
+                    summary.append("     ").append(report).append(NL);
+                }
+            }
+        }
+
+        summary.append(NL)
+                .append("Compiled ").append(units.size() - failed).append(" of ").append(units.size())
+                .append(" units in ").append(elapsedMillis).append(" ms").append(NL);
+
+        pipeline.getCache().ifPresent(cache -> summary
+                .append("Cache: ").append(cache.getHits()).append(" hits, ")
+                .append(cache.getMisses()).append(" misses").append(NL));
+
+        SpecsIo.write(new File(outputDir, SUMMARY_FILENAME), summary.toString());
+        System.out.print(summary);
+
+        return failed;
+    }
+
+    /**
+     * A directory is searched recursively for .jmm files. Any other file is read as a manifest with one path per
+     * line, relative to the manifest itself; blank lines and lines starting with '#' are ignored.
+     */
+    static List<File> collectUnits(File batchInput) {
+        if (batchInput.isDirectory()) {
+            var files = new ArrayList<>(SpecsIo.getFilesRecursive(batchInput, "jmm"));
+            files.sort(Comparator.comparing(File::getPath));
+            return files;
+        }
+
+        var baseDir = batchInput.getAbsoluteFile().getParentFile();
+        var files = new ArrayList<File>();
+
+        for (var line : SpecsIo.read(batchInput).split("\\R")) {
+            var path = line.strip();
+            if (path.isEmpty() || path.startsWith("#")) {
+                continue;
+            }
+
+            var file = new File(path);
+            files.add(file.isAbsolute() ? file : new File(baseDir, path));
+        }
+
+        return files;
+    }
+}
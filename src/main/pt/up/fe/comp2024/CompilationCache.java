@@ -0,0 +1,209 @@
+package pt.up.fe.comp2024;
+
+import com.google.gson.JsonParseException;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk cache of compilation results, addressed by the contents of what was compiled.
+ * <p>
+ * The key is a SHA-256 of the source code, the options that change the generated code ('-o', '-r' and '-e') and the
+ * version of the compiler itself, so any change to one of them is a miss. Each entry is one JSON file with the
+ * generated code and the reports, see {@link CompilationResult#toJson()} for what a report keeps of its exception.
+ * When the cache grows past its size, the least recently used entries are removed first. An entry that cannot be
+ * read is deleted and counted as a miss.
+ */
+public class CompilationCache {
+
+    /**
+     * Bump when the output changes in a way that the compiler fingerprint would not notice.
+     */
+    private static final String COMPILER_VERSION = "1";
+
+    private static final String ENTRY_EXTENSION = ".json";
+
+    private final File cacheDir;
+    private final long maxSize;
+    private final String compilerFingerprint;
+
+    // Entry name -> size in bytes, least recently used first
+    private final LinkedHashMap<String, Long> entries;
+    private long currentSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CompilationCache(File cacheDir, long maxSize) {
+        this.cacheDir = cacheDir;
+        this.maxSize = maxSize;
+        this.compilerFingerprint = COMPILER_VERSION + ":" + getCodeTimestamp();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.currentSize = 0;
+
+        SpecsIo.mkdir(cacheDir);
+        loadEntries();
+    }
+
+    /**
+     * @return a cache configured with '-c' and '-m', if '-c' was given
+     */
+    public static Optional<CompilationCache> fromConfig(Map<String, String> config) {
+        return CompilerConfig.getCacheDir(config)
+                .map(cacheDir -> new CompilationCache(cacheDir, CompilerConfig.getCacheSize(config)));
+    }
+
+    public String getKey(String code, Map<String, String> config) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(compilerFingerprint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(CompilerConfig.getOptimize(config)).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(CompilerConfig.getRegisterAllocation(config)).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(CompilerConfig.getEmitClassFiles(config)).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(code.getBytes(StandardCharsets.UTF_8));
+
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    public Optional<CompilationResult> get(String key) {
+        var entryName = key + ENTRY_EXTENSION;
+        var entryFile = new File(cacheDir, entryName);
+
+        synchronized (this) {
+            if (!entries.containsKey(entryName) || !entryFile.isFile()) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+
+            // Marks the entry as recently used, also for other processes sharing the directory
+            entries.get(entryName);
+            entryFile.setLastModified(System.currentTimeMillis());
+        }
+
+        try {
+            var result = CompilationResult.fromJson(SpecsIo.read(entryFile));
+            hits.incrementAndGet();
+            return Optional.of(result);
+        } catch (JsonParseException e) {
+            // Entry was corrupted, e.g. by another program writing to the directory
+            System.err.println("Compilation cache: removing corrupt entry '" + entryFile + "': " + e.getMessage());
+            remove(entryName);
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, CompilationResult result) {
+        var entryName = key + ENTRY_EXTENSION;
+        var entryFile = new File(cacheDir, entryName);
+        var json = result.toJson().getBytes(StandardCharsets.UTF_8);
+
+        try {
+            // Write to a temporary file first, so readers never see half an entry
+            var tempFile = File.createTempFile(key, ".tmp", cacheDir);
+            Files.write(tempFile.toPath(), json);
+            Files.move(tempFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The cache is only an optimization, compiling again is always correct
+            return;
+        }
+
+        synchronized (this) {
+            var previousSize = entries.put(entryName, (long) json.length);
+            currentSize += json.length - (previousSize == null ? 0 : previousSize);
+            evict();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private synchronized void remove(String entryName) {
+        var size = entries.remove(entryName);
+        if (size != null) {
+            currentSize -= size;
+        }
+
+        new File(cacheDir, entryName).delete();
+    }
+
+    private void evict() {
+        var iterator = entries.entrySet().iterator();
+
+        while (currentSize > maxSize && iterator.hasNext()) {
+            var eldest = iterator.next();
+            currentSize -= eldest.getValue();
+            iterator.remove();
+
+            new File(cacheDir, eldest.getKey()).delete();
+        }
+    }
+
+    private void loadEntries() {
+        var files = cacheDir.listFiles((dir, name) -> name.endsWith(ENTRY_EXTENSION));
+        if (files == null) {
+            return;
+        }
+
+        // Oldest first, so the access order starts as the order of the last uses
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (var file : files) {
+            entries.put(file.getName(), file.length());
+            currentSize += file.length();
+        }
+
+        evict();
+    }
+
+    /**
+     * Identifies the build of the compiler by when its classes were last written, so entries produced by an older
+     * build are never reused.
+     */
+    private static long getCodeTimestamp() {
+        var codeSource = CompilationCache.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            return 0;
+        }
+
+        try {
+            var location = new File(codeSource.getLocation().toURI());
+            if (location.isFile()) {
+                return location.lastModified();
+            }
+
+            return SpecsIo.getFilesRecursive(location, "class").stream()
+                    .mapToLong(File::lastModified)
+                    .max()
+                    .orElse(0);
+        } catch (URISyntaxException | IllegalArgumentException | SecurityException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.analysis.JmmAnalysis;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.ClassFileGenerator;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.metrics.Metrics;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.output.OutputSink;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Runs source code through every stage of the compiler.
+ * <p>
+ * The stage implementations are created once and reused for every unit, so compiling many files with the same
+ * pipeline only pays class loading and JIT warm-up once. With a {@link CompilationCache}, units that were already
+ * compiled with the same options skip every stage, unless the pipeline writes their intermediate representations
+ * (with '-v' or '-w'). Each stage is measured when {@link Metrics} are being collected.
+ */
+public class CompilationPipeline {
+
+    private final JmmParserImpl parser;
+    private final JmmAnalysisImpl sema;
+    private final JmmOptimizationImpl ollirGen;
+    private final JasminBackendImpl jasminGen;
+    private final CompilationCache cache;
+    private final OutputSink sink;
+
+    public CompilationPipeline() {
+        this(null, OutputSink.NONE);
+    }
+
+    /**
+     * @param cache Cache of compiled units, or null to always compile them
+     * @param sink Where the intermediate representations of every unit are written
+     */
+    public CompilationPipeline(CompilationCache cache, OutputSink sink) {
+        this.cache = cache;
+        this.sink = sink;
+        this.parser = new JmmParserImpl();
+        this.sema = new JmmAnalysisImpl();
+        this.ollirGen = new JmmOptimizationImpl(sink);
+        this.jasminGen = new JasminBackendImpl(sink);
+    }
+
+    /**
+     * Builds the pipeline the options ask for, i.e. with the cache of '-c' and the sink of '-v' and '-w'.
+     */
+    public static CompilationPipeline fromConfig(Map<String, String> config) {
+        return new CompilationPipeline(CompilationCache.fromConfig(config).orElse(null), OutputSink.fromConfig(config));
+    }
+
+    public Optional<CompilationCache> getCache() {
+        return Optional.ofNullable(cache);
+    }
+
+    public CompilationResult compile(String code, Map<String, String> config) {
+        return compile(code, config, sema);
+    }
+
+    /**
+     * Compiles the code with the given semantic analysis instead of the one of the pipeline, e.g. an
+     * {@link pt.up.fe.comp2024.analysis.IncrementalJmmAnalysis} that remembers the previous version of the file.
+     */
+    public CompilationResult compile(String code, Map<String, String> config, JmmAnalysis analysis) {
+        // A cached result would skip the stages that write the intermediate representations
+        if (cache == null || sink != OutputSink.NONE) {
+            return compileUncached(code, config, analysis);
+        }
+
+        var key = cache.getKey(code, config);
+        var cached = Metrics.measure("cache", () -> cache.get(key));
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        var result = compileUncached(code, config, analysis);
+        cache.put(key, result);
+
+        return result;
+    }
+
+    private CompilationResult compileUncached(String code, Map<String, String> config, JmmAnalysis analysis) {
+
+        // Parsing stage
+        JmmParserResult parserResult = Metrics.measure("parse", () -> parser.parse(code, config));
+        if (ReportUtils.anyError(parserResult.getReports())) {
+            return CompilationResult.failed(parserResult.getReports());
+        }
+
+        // Semantic Analysis stage
+        JmmSemanticsResult semanticsResult = Metrics.measure("semantic",
+                () -> analysis.semanticAnalysis(parserResult));
+        if (ReportUtils.anyError(semanticsResult.getReports())) {
+            return CompilationResult.failed(semanticsResult.getReports());
+        }
+
+        // Optimization stage, the AST is only optimized with '-o'
+        JmmSemanticsResult optimizedResult = Metrics.measure("optimize", () -> ollirGen.optimize(semanticsResult));
+        OllirResult ollirResult = Metrics.measure("ollir", () -> ollirGen.toOllir(optimizedResult));
+        if (ReportUtils.anyError(ollirResult.getReports())) {
+            return CompilationResult.failed(ollirResult.getReports());
+        }
+
+        // The OLLIR code is only optimized with '-o' and '-r', which can report too few registers
+        Metrics.measure("optimizeOllir", () -> ollirGen.optimize(ollirResult));
+        if (ReportUtils.anyError(ollirResult.getReports())) {
+            return CompilationResult.failed(ollirResult.getReports());
+        }
+
+        // Code generation stage, straight to a class file with '-e=class'
+        if (CompilerConfig.getEmitClassFiles(config)) {
+            var classFileGen = new ClassFileGenerator(ollirResult);
+            byte[] classFile = Metrics.measure("classFile", classFileGen::build);
+
+            return CompilationResult.ofClassFile(ollirResult.getOllirClass().getClassName(), classFile,
+                    classFileGen.getReports());
+        }
+
+        JasminResult jasminResult = Metrics.measure("jasmin", () -> jasminGen.toJasmin(ollirResult));
+        if (ReportUtils.anyError(jasminResult.getReports())) {
+            return CompilationResult.failed(jasminResult.getReports());
+        }
+
+        return new CompilationResult(jasminResult.getClassName(), jasminResult.getJasminCode(), jasminResult.getReports());
+    }
+}
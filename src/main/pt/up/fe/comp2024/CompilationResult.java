@@ -0,0 +1,174 @@
+package pt.up.fe.comp2024;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Outcome of running one compilation unit through the whole pipeline.
+ * <p>
+ * The generated code is either Jasmin code or, with '-e=class', a class file. If a stage reports an error, the
+ * pipeline stops there and the result has no class name nor code.
+ */
+public class CompilationResult {
+
+    private final String className;
+    private final String jasminCode;
+    private final byte[] classFile;
+    private final List<Report> reports;
+
+    public CompilationResult(String className, String jasminCode, List<Report> reports) {
+        this(className, jasminCode, null, reports);
+    }
+
+    private CompilationResult(String className, String jasminCode, byte[] classFile, List<Report> reports) {
+        this.className = className;
+        this.jasminCode = jasminCode;
+        this.classFile = classFile;
+        this.reports = reports;
+    }
+
+    public static CompilationResult ofClassFile(String className, byte[] classFile, List<Report> reports) {
+        return new CompilationResult(className, null, classFile, reports);
+    }
+
+    public static CompilationResult failed(List<Report> reports) {
+        return new CompilationResult(null, null, null, reports);
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getJasminCode() {
+        return jasminCode;
+    }
+
+    /**
+     * @return the class file, if it was generated instead of Jasmin code
+     */
+    public byte[] getClassFile() {
+        return classFile;
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    /**
+     * Writes the Jasmin code or the class file of a successful result to the directory, named after the class.
+     *
+     * @return the file written
+     */
+    public File writeTo(File dir) {
+        SpecsIo.mkdir(dir);
+
+        if (classFile == null) {
+            var jasminFile = new File(dir, className + ".j");
+            SpecsIo.write(jasminFile, jasminCode);
+
+            return jasminFile;
+        }
+
+        var file = new File(dir, className + ".class");
+        try {
+            Files.write(file.toPath(), classFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write '" + file + "'", e);
+        }
+
+        return file;
+    }
+
+    public boolean isSuccess() {
+        return (jasminCode != null || classFile != null) && !ReportUtils.anyError(reports);
+    }
+
+    /**
+     * Converts this result to a single line of JSON.
+     * <p>
+     * Everything but the exceptions of the reports is kept as is. An exception is kept only as its message, so
+     * {@link #fromJson(String)} gives the report a {@link RuntimeException} with that message and without the original
+     * type, stack trace or cause.
+     */
+    public String toJson() {
+        var serialized = new Serialized();
+        serialized.className = className;
+        serialized.jasminCode = jasminCode;
+        serialized.classFile = classFile == null ? null : Base64.getEncoder().encodeToString(classFile);
+        serialized.reports = reports.stream().map(SerializedReport::new).toList();
+
+        return new Gson().toJson(serialized);
+    }
+
+    /**
+     * @throws JsonParseException if the JSON is not a result written by {@link #toJson()}
+     */
+    public static CompilationResult fromJson(String json) {
+        var serialized = new Gson().fromJson(json, Serialized.class);
+        if (serialized == null || serialized.reports == null || serialized.reports.contains(null)) {
+            throw new JsonParseException("Expected a compilation result with its reports");
+        }
+
+        var reports = serialized.reports.stream().map(SerializedReport::toReport).toList();
+
+        byte[] classFile = null;
+        if (serialized.classFile != null) {
+            try {
+                classFile = Base64.getDecoder().decode(serialized.classFile);
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException("Class file is not in Base64", e);
+            }
+        }
+
+        return new CompilationResult(serialized.className, serialized.jasminCode, classFile, reports);
+    }
+
+    private static class Serialized {
+        String className;
+        String jasminCode;
+        String classFile;
+        List<SerializedReport> reports;
+    }
+
+    private static class SerializedReport {
+        ReportType type;
+        Stage stage;
+        int line;
+        int column;
+        String message;
+        String exception;
+
+        SerializedReport() {
+        }
+
+        SerializedReport(Report report) {
+            this.type = report.getType();
+            this.stage = report.getStage();
+            this.line = report.getLine();
+            this.column = report.getColumn();
+            this.message = report.getMessage();
+            this.exception = report.getException().map(Exception::getMessage).orElse(null);
+        }
+
+        Report toReport() {
+            var report = new Report(type, stage, line, column, message);
+            if (exception != null) {
+                report.setException(new RuntimeException(exception));
+            }
+
+            return report;
+        }
+    }
+}
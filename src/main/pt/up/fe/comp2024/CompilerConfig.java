@@ -2,6 +2,7 @@ package pt.up.fe.comp2024;
 
 import java.io.File;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -10,6 +11,20 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String BATCH_INPUT = "batchInput";
+    private static final String OUTPUT_DIR = "outputDir";
+    private static final String JOBS = "jobs";
+    private static final String DAEMON = "daemon";
+    private static final String PORT = "port";
+    private static final String CACHE_DIR = "cacheDir";
+    private static final String CACHE_SIZE = "cacheSize";
+    private static final String METRICS = "metrics";
+    private static final String EMIT = "emit";
+    private static final String VERBOSE = "verbose";
+    private static final String DUMP_DIR = "dumpDir";
+
+    public static final int DEFAULT_PORT = 47100;
+    public static final int DEFAULT_CACHE_SIZE_MB = 256;
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +33,17 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("b", CompilerConfig.BATCH_INPUT);
+        shortToLong.put("d", CompilerConfig.OUTPUT_DIR);
+        shortToLong.put("j", CompilerConfig.JOBS);
+        shortToLong.put("s", CompilerConfig.DAEMON);
+        shortToLong.put("p", CompilerConfig.PORT);
+        shortToLong.put("c", CompilerConfig.CACHE_DIR);
+        shortToLong.put("m", CompilerConfig.CACHE_SIZE);
+        shortToLong.put("t", CompilerConfig.METRICS);
+        shortToLong.put("e", CompilerConfig.EMIT);
+        shortToLong.put("v", CompilerConfig.VERBOSE);
+        shortToLong.put("w", CompilerConfig.DUMP_DIR);
     }
 
 
@@ -32,6 +58,39 @@ public class CompilerConfig {
         return Optional.of(new File(inputFile));
     }
 
+    /**
+     * @return the directory or manifest file given with '-b', if batch compilation was requested
+     */
+    public static Optional<File> getBatchInput(Map<String, String> config) {
+        var batchInput = config.get(BATCH_INPUT);
+
+        if (batchInput == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(batchInput));
+    }
+
+    public static Optional<File> getOutputDir(Map<String, String> config) {
+        var outputDir = config.get(OUTPUT_DIR);
+
+        if (outputDir == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(outputDir));
+    }
+
+    /**
+     * Returns a copy of the given config that compiles the given file instead.
+     */
+    public static Map<String, String> withInputFile(Map<String, String> config, File inputFile) {
+        var unitConfig = new HashMap<>(config);
+        unitConfig.put(INPUT_FILE, inputFile.getAbsolutePath());
+
+        return unitConfig;
+    }
+
     public static boolean getOptimize(Map<String, String> config) {
         return Boolean.parseBoolean(config.getOrDefault(OPTIMIZE, "false"));
     }
@@ -41,6 +100,152 @@ public class CompilerConfig {
     }
 
 
+    /**
+     * @return the number of compilation units to compile in parallel, '-j' without a value uses every core
+     */
+    public static int getJobs(Map<String, String> config) {
+        var jobs = config.getOrDefault(JOBS, "1");
+
+        if (jobs.equals("true")) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        int numJobs = Integer.parseInt(jobs);
+        if (numJobs < 1) {
+            throw new RuntimeException("Option '-j' expects a positive number of jobs, got '" + jobs + "'");
+        }
+
+        return numJobs;
+    }
+
+    /**
+     * @return true if '-s' asks to start a compiler daemon
+     */
+    public static boolean getDaemon(Map<String, String> config) {
+        return config.getOrDefault(DAEMON, "false").equals("true");
+    }
+
+    /**
+     * @return true if '-s=stop' asks to shut down a running compiler daemon
+     */
+    public static boolean getDaemonStop(Map<String, String> config) {
+        return config.getOrDefault(DAEMON, "false").equals("stop");
+    }
+
+    /**
+     * @return the localhost port of the compiler daemon, if '-p' was given ('-p' without a value uses the default port)
+     */
+    public static Optional<Integer> getPort(Map<String, String> config) {
+        var port = config.get(PORT);
+
+        if (port == null) {
+            return Optional.empty();
+        }
+
+        if (port.equals("true")) {
+            return Optional.of(DEFAULT_PORT);
+        }
+
+        return Optional.of(Integer.parseInt(port));
+    }
+
+    /**
+     * @return the directory of the compilation cache, if '-c' was given
+     */
+    public static Optional<File> getCacheDir(Map<String, String> config) {
+        var cacheDir = config.get(CACHE_DIR);
+
+        if (cacheDir == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(cacheDir));
+    }
+
+    /**
+     * @return the maximum size of the compilation cache in bytes, given in megabytes with '-m'
+     */
+    public static long getCacheSize(Map<String, String> config) {
+        var size = config.getOrDefault(CACHE_SIZE, String.valueOf(DEFAULT_CACHE_SIZE_MB));
+
+        long sizeMb = Long.parseLong(size);
+        if (sizeMb < 1) {
+            throw new RuntimeException("Option '-m' expects a positive size in megabytes, got '" + size + "'");
+        }
+
+        return sizeMb * 1024 * 1024;
+    }
+
+    /**
+     * @return the file to write the time and allocations of each stage to, if '-t' was given
+     */
+    public static Optional<File> getMetricsFile(Map<String, String> config) {
+        var metricsFile = config.get(METRICS);
+
+        if (metricsFile == null) {
+            return Optional.empty();
+        }
+
+        if (metricsFile.equals("true")) {
+            throw new RuntimeException("Option '-t' expects a path to the metrics file, use '-t=<PATH_TO_FILE>'");
+        }
+
+        return Optional.of(new File(metricsFile));
+    }
+
+    /**
+     * @return true if '-e=class' asks for class files instead of Jasmin code ('-e=jasmin', the default)
+     */
+    public static boolean getEmitClassFiles(Map<String, String> config) {
+        var emit = config.getOrDefault(EMIT, "jasmin");
+
+        return switch (emit) {
+            case "jasmin" -> false;
+            case "class" -> true;
+            default -> throw new RuntimeException("Option '-e' expects 'jasmin' or 'class', got '" + emit + "'");
+        };
+    }
+
+    /**
+     * @return true if '-v' asks to print the OLLIR and Jasmin code
+     */
+    public static boolean getVerbose(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(VERBOSE, "false"));
+    }
+
+    /**
+     * @return the directory to write the OLLIR and Jasmin code of each class to, if '-w' was given
+     */
+    public static Optional<File> getDumpDir(Map<String, String> config) {
+        var dumpDir = config.get(DUMP_DIR);
+
+        if (dumpDir == null) {
+            return Optional.empty();
+        }
+
+        if (dumpDir.equals("true")) {
+            throw new RuntimeException("Option '-w' expects a directory, use '-w=<PATH_TO_DIR>'");
+        }
+
+        return Optional.of(new File(dumpDir));
+    }
+
+    /**
+     * @return only the options that change the code a unit compiles to ('-o', '-r' and '-e'), without the ones that
+     * say where to read or write files
+     */
+    public static Map<String, String> getCodeOptions(Map<String, String> config) {
+        var codeOptions = getDefault();
+
+        for (var option : List.of(OPTIMIZE, REGISTER, EMIT)) {
+            if (config.containsKey(option)) {
+                codeOptions.put(option, config.get(option));
+            }
+        }
+
+        return codeOptions;
+    }
+
     public static Map<String, String> getDefault() {
 
         var config = new HashMap<String, String>();
@@ -89,23 +294,49 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
-        if (!config.containsKey(INPUT_FILE)) {
+        if (!config.containsKey(INPUT_FILE) && !config.containsKey(BATCH_INPUT) && !config.containsKey(DAEMON)) {
 
-            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
+            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>' " +
+                    "or '-b=<PATH_TO_DIR_OR_MANIFEST>'");
         }
 
         // make sure we save the absolute path of the input file
-        var inputFile = new File(config.get(INPUT_FILE));
-        if (!inputFile.isFile()) {
-            throw new RuntimeException("Could not find input file '" + inputFile + "'");
+        if (config.containsKey(INPUT_FILE)) {
+            var inputFile = new File(config.get(INPUT_FILE));
+            if (!inputFile.isFile()) {
+                throw new RuntimeException("Could not find input file '" + inputFile + "'");
+            }
+
+            config.put(INPUT_FILE, inputFile.getAbsolutePath());
+        }
+
+        if (config.containsKey(BATCH_INPUT)) {
+            var batchInput = new File(config.get(BATCH_INPUT));
+            if (!batchInput.exists()) {
+                throw new RuntimeException("Could not find batch input '" + batchInput + "'");
+            }
+
+            config.put(BATCH_INPUT, batchInput.getAbsolutePath());
+        }
+
+        if (config.containsKey(OUTPUT_DIR)) {
+            config.put(OUTPUT_DIR, new File(config.get(OUTPUT_DIR)).getAbsolutePath());
+        }
+
+        if (config.containsKey(CACHE_DIR)) {
+            config.put(CACHE_DIR, new File(config.get(CACHE_DIR)).getAbsolutePath());
         }
 
-        var absolutePath = inputFile.getAbsolutePath();
-        config.put(INPUT_FILE, absolutePath);
+        getMetricsFile(config).ifPresent(metricsFile -> config.put(METRICS, metricsFile.getAbsolutePath()));
+        getDumpDir(config).ifPresent(dumpDir -> config.put(DUMP_DIR, dumpDir.getAbsolutePath()));
 
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getJobs(config);
+        getPort(config);
+        getCacheSize(config);
+        getEmitClassFiles(config);
 
         return config;
     }
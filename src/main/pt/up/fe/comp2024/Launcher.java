@@ -1,18 +1,17 @@
 package pt.up.fe.comp2024;
 
 import pt.up.fe.comp.TestUtils;
-import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.jasmin.JasminResult;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.comp.jmm.parser.JmmParserResult;
-import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
-import pt.up.fe.comp2024.backend.JasminBackendImpl;
-import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
-import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.daemon.CompilerDaemon;
+import pt.up.fe.comp2024.daemon.DaemonClient;
+import pt.up.fe.comp2024.metrics.Metrics;
+import pt.up.fe.comp2024.metrics.MetricsReport;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.File;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class Launcher {
 
@@ -21,41 +20,67 @@ public class Launcher {
 
         Map<String, String> config = CompilerConfig.parseArgs(args);
 
-        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
-        if (!inputFile.isFile()) {
-            throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
+        // Daemon mode, keeps a warmed-up compiler serving requests until it is stopped with '-s=stop'
+        if (CompilerConfig.getDaemon(config)) {
+            new CompilerDaemon(config).serve();
+            return;
         }
-        String code = SpecsIo.read(inputFile);
 
-        // Parsing stage
-        JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
-        TestUtils.noErrors(parserResult.getReports());
-
-        // Print AST
-        //System.out.println(parserResult.getRootNode().toTree());
+        if (CompilerConfig.getDaemonStop(config)) {
+            var port = CompilerConfig.getPort(config).orElse(CompilerConfig.DEFAULT_PORT);
+            if (!new DaemonClient(port).shutdown()) {
+                System.out.println("No compiler daemon listening on localhost:" + port);
+            }
+            return;
+        }
 
-        // Semantic Analysis stage
-        JmmAnalysisImpl sema = new JmmAnalysisImpl();
-        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
-        TestUtils.noErrors(semanticsResult.getReports());
+        // Batch mode, compiles every unit with the same pipeline
+        if (CompilerConfig.getBatchInput(config).isPresent()) {
+            int failed = new BatchCompiler(config).run();
+            if (failed > 0) {
+                throw new RuntimeException(failed + " compilation unit(s) failed, see '"
+                        + BatchCompiler.SUMMARY_FILENAME + "' for details.");
+            }
+            return;
+        }
 
+        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
+        if (!inputFile.isFile()) {
+            throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
+        }
 
-        // Optimization stage
-        JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
-        TestUtils.noErrors(ollirResult.getReports());
+        CompilationResult result;
+        var metricsFile = CompilerConfig.getMetricsFile(config);
+        if (metricsFile.isPresent()) {
+            // With '-t', compile in-process so the metrics are of this compilation
+            var unitMetrics = Metrics.startUnit(inputFile.getAbsolutePath());
+            try (unitMetrics) {
+                result = compile(inputFile, config);
+            }
+            new MetricsReport(List.of(unitMetrics)).write(metricsFile.get());
+        } else {
+            // With '-p', try a running daemon first and fall back to compiling in-process
+            result = CompilerConfig.getPort(config)
+                    .flatMap(port -> new DaemonClient(port).compile(inputFile.getAbsolutePath(), config))
+                    .orElseGet(() -> compile(inputFile, config));
+        }
+        TestUtils.noErrors(result.getReports());
 
-        // Print OLLIR code
-        //System.out.println(ollirResult.getOllirCode());
+        // Like in batch mode, the code goes to '-d'. Without it, a class file goes next to the input, Jasmin code
+        // is only written when asked for
+        var outputDir = CompilerConfig.getOutputDir(config);
+        if (outputDir.isEmpty() && result.getClassFile() != null) {
+            outputDir = Optional.of(inputFile.getAbsoluteFile().getParentFile());
+        }
+        outputDir.ifPresent(result::writeTo);
+    }
 
-        // Code generation stage
-        JasminBackendImpl jasminGen = new JasminBackendImpl();
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        TestUtils.noErrors(jasminResult.getReports());
+    private static CompilationResult compile(File inputFile, Map<String, String> config) {
+        String code = SpecsIo.read(inputFile);
 
-        // Print Jasmin code
-        //System.out.println(jasminResult.getJasminCode());
+        // Parsing, semantic analysis, OLLIR and Jasmin generation stages
+        CompilationPipeline pipeline = CompilationPipeline.fromConfig(config);
+        return pipeline.compile(code, config);
     }
 
 }
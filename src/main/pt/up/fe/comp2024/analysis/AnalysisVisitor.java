@@ -6,7 +6,11 @@ import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
 
 /**
  *
@@ -15,11 +19,41 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
 
     private List<Report> reports;
 
+    // Not initialized here, addVisit is called by the super constructor before field initializers run
+    private Set<String> visitedKinds;
+
     public AnalysisVisitor() {
         reports = new ArrayList<>();
         setDefaultValue(() -> null);
     }
 
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, SymbolTable, Void> method) {
+        if (visitedKinds == null) {
+            visitedKinds = new HashSet<>();
+        }
+
+        visitedKinds.add(kind);
+        super.addVisit(kind, method);
+    }
+
+    /**
+     * @return true if this pass has a visit for a node with the given hierarchy, i.e. if it does anything with it
+     */
+    boolean visits(Collection<String> hierarchy) {
+        if (visitedKinds == null) {
+            return false;
+        }
+
+        for (var kind : hierarchy) {
+            if (visitedKinds.contains(kind)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     protected void addReport(Report report) {
         reports.add(report);
     }
@@ -37,4 +71,11 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
         // Return reports
         return getReports();
     }
+
+    /**
+     * Analyses only the given node, without visiting its children.
+     */
+    void analyzeNode(JmmNode node, SymbolTable table) {
+        getVisit(node).apply(node, table);
+    }
 }
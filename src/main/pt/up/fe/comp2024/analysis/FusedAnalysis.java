@@ -0,0 +1,121 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.metrics.Metrics;
+import pt.up.fe.comp2024.metrics.Sample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Runs several analysis passes in a single preorder traversal of the AST.
+ * <p>
+ * Each node is handed to the passes that have a visit for its kind, in pass order. The reports are the same as
+ * running each pass on its own: they are kept per pass and joined in pass order, and a pass that throws loses its
+ * reports and is replaced by an error, without stopping the others.
+ * <p>
+ * When {@link Metrics} are being collected, the calls of each pass are measured and added up as the stage
+ * 'semantic.passes.&lt;pass&gt;'. That is two samples per node and pass, so it makes the analysis itself slower.
+ */
+public class FusedAnalysis {
+
+    private final List<AnalysisVisitor> passes;
+    private final Exception[] failures;
+
+    // Node kind -> indexes of the passes that visit it
+    private final Map<String, int[]> passesPerKind;
+
+    // What each pass cost, only when measuring
+    private Sample[] passSamples;
+
+    public FusedAnalysis(List<Supplier<AnalysisVisitor>> passSuppliers) {
+        this.passes = new ArrayList<>();
+        for (var passSupplier : passSuppliers) {
+            passes.add(passSupplier.get());
+        }
+
+        this.failures = new Exception[passes.size()];
+        this.passesPerKind = new HashMap<>();
+    }
+
+    public List<Report> analyze(JmmNode root, SymbolTable table) {
+        passSamples = null;
+        if (Metrics.isEnabled()) {
+            passSamples = new Sample[passes.size()];
+            Arrays.fill(passSamples, Sample.ZERO);
+        }
+
+        visit(root, table);
+
+        if (passSamples != null) {
+            for (int i = 0; i < passes.size(); i++) {
+                Metrics.record("semantic.passes." + passes.get(i).getClass().getSimpleName(), passSamples[i]);
+            }
+        }
+
+        return getReports();
+    }
+
+    private void visit(JmmNode node, SymbolTable table) {
+        for (int passIndex : getPasses(node)) {
+            if (failures[passIndex] != null) {
+                continue;
+            }
+
+            var start = passSamples != null ? Sample.now() : null;
+            try {
+                passes.get(passIndex).analyzeNode(node, table);
+            } catch (Exception e) {
+                failures[passIndex] = e;
+            }
+
+            if (start != null) {
+                passSamples[passIndex] = passSamples[passIndex].plus(Sample.now().since(start));
+            }
+        }
+
+        for (var child : node.getChildren()) {
+            visit(child, table);
+        }
+    }
+
+    private int[] getPasses(JmmNode node) {
+        // The hierarchy of a node only depends on its kind
+        var nodePasses = passesPerKind.get(node.getKind());
+        if (nodePasses != null) {
+            return nodePasses;
+        }
+
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < passes.size(); i++) {
+            if (passes.get(i).visits(node.getHierarchy())) {
+                indexes.add(i);
+            }
+        }
+
+        nodePasses = indexes.stream().mapToInt(Integer::intValue).toArray();
+        passesPerKind.put(node.getKind(), nodePasses);
+
+        return nodePasses;
+    }
+
+    private List<Report> getReports() {
+        List<Report> reports = new ArrayList<>();
+
+        for (int i = 0; i < passes.size(); i++) {
+            if (failures[i] == null) {
+                reports.addAll(passes.get(i).getReports());
+            } else {
+                reports.add(JmmAnalysisImpl.passFailed(passes.get(i).getClass(), failures[i]));
+            }
+        }
+
+        return reports;
+    }
+}
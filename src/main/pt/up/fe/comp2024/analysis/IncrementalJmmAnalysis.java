@@ -0,0 +1,355 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.JmmAnalysis;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Semantic analysis that remembers the previous analysis of a class and, when analysing a new version of it, only
+ * re-runs the passes on the methods that changed.
+ * <p>
+ * The AST is split into units: the program and class nodes themselves, each import, each field and each method. Only
+ * class-level declarations (imports, class header, fields and method signatures) affect the analysis of more than
+ * one method, so if they change everything is analysed again. Otherwise, the symbol table is reused with the locals
+ * of the changed methods rebuilt, the class-level units are analysed again (they are small), and the reports of
+ * unchanged methods are reused, moved to where the method is now.
+ * <p>
+ * The reports are the same, and in the same order, as the ones of {@link JmmAnalysisImpl}. Meant for analysing
+ * successive versions of the same file, e.g. in an editor, so it is not thread-safe.
+ */
+public class IncrementalJmmAnalysis implements JmmAnalysis {
+
+    // Attributes that do not change the meaning of a node
+    private static final Set<String> IGNORED_ATTRIBUTES = Set.of(
+            NodePosition.LINE_START.getString(),
+            NodePosition.LINE_END.getString(),
+            NodePosition.COL_START.getString(),
+            NodePosition.COL_END.getString(),
+            TypeUtils.getExprTypeAttribute()
+    );
+
+    private final List<Supplier<AnalysisVisitor>> analysisPasses;
+
+    // State of the previous analysis
+    private String classFingerprint;
+    private JmmSymbolTable table;
+    private Map<String, MethodAnalysis> methodAnalyses;
+
+    private int reusedMethods;
+    private int analysedMethods;
+
+    public IncrementalJmmAnalysis() {
+        this.analysisPasses = JmmAnalysisImpl.ANALYSIS_PASSES;
+        this.methodAnalyses = new HashMap<>();
+    }
+
+    /**
+     * @return how many methods had their reports reused in the last analysis
+     */
+    public int getReusedMethods() {
+        return reusedMethods;
+    }
+
+    /**
+     * @return how many methods were analysed in the last analysis
+     */
+    public int getAnalysedMethods() {
+        return analysedMethods;
+    }
+
+    @Override
+    public JmmSemanticsResult semanticAnalysis(JmmParserResult parserResult) {
+
+        JmmNode rootNode = parserResult.getRootNode();
+        var units = getUnits(rootNode);
+
+        var newClassFingerprint = getClassFingerprint(units);
+        boolean rebuilt = newClassFingerprint == null || !newClassFingerprint.equals(classFingerprint);
+        if (rebuilt) {
+            // Class-level declarations changed (or methods are overloaded), start from scratch
+            table = JmmSymbolTableBuilder.build(rootNode);
+            methodAnalyses = new HashMap<>();
+        }
+
+        // Find out which methods changed since the last analysis
+        Map<JmmNode, String> methodFingerprints = new HashMap<>();
+        List<JmmNode> changedMethods = new ArrayList<>();
+        for (var unit : units) {
+            if (Kind.METHOD_DECL.check(unit.node())) {
+                var fingerprint = getFingerprint(unit.node());
+                methodFingerprints.put(unit.node(), fingerprint);
+
+                if (!methodAnalyses.containsKey(fingerprint)) {
+                    changedMethods.add(unit.node());
+                }
+            }
+        }
+
+        if (!rebuilt && !changedMethods.isEmpty()) {
+            table = JmmSymbolTableBuilder.rebuildLocals(table, changedMethods);
+        }
+
+        // Analyse each unit, reusing the unchanged methods
+        var passes = new ArrayList<AnalysisVisitor>();
+        for (var passSupplier : analysisPasses) {
+            passes.add(passSupplier.get());
+        }
+
+        Map<String, MethodAnalysis> newMethodAnalyses = new HashMap<>();
+        List<List<UnitResult>> unitResults = new ArrayList<>();
+        reusedMethods = 0;
+        analysedMethods = 0;
+
+        for (var unit : units) {
+            if (!Kind.METHOD_DECL.check(unit.node())) {
+                unitResults.add(analyze(unit, passes));
+                continue;
+            }
+
+            var fingerprint = methodFingerprints.get(unit.node());
+            var previous = methodAnalyses.get(fingerprint);
+
+            MethodAnalysis methodAnalysis;
+            if (previous != null) {
+                methodAnalysis = previous.movedTo(unit.node());
+                reusedMethods++;
+            } else {
+                methodAnalysis = new MethodAnalysis(NodeUtils.getLine(unit.node()), NodeUtils.getColumn(unit.node()),
+                        analyze(unit, passes));
+                analysedMethods++;
+            }
+
+            newMethodAnalyses.put(fingerprint, methodAnalysis);
+            unitResults.add(methodAnalysis.results());
+        }
+
+        classFingerprint = newClassFingerprint;
+        methodAnalyses = newMethodAnalyses;
+
+        return new JmmSemanticsResult(parserResult, table, collectReports(unitResults));
+    }
+
+    /**
+     * Joins the results of every unit in the order a single visit of the whole AST per pass would produce them.
+     */
+    private List<Report> collectReports(List<List<UnitResult>> unitResults) {
+        List<Report> reports = new ArrayList<>();
+
+        for (int i = 0; i < analysisPasses.size(); i++) {
+            List<Report> passReports = new ArrayList<>();
+            UnitResult failed = null;
+
+            for (var results : unitResults) {
+                var result = results.get(i);
+                if (result.failure() != null) {
+                    failed = result;
+                    break;
+                }
+
+                passReports.addAll(result.reports());
+            }
+
+            if (failed == null) {
+                reports.addAll(passReports);
+            } else {
+                reports.add(JmmAnalysisImpl.passFailed(failed.passClass(), failed.failure()));
+            }
+        }
+
+        return reports;
+    }
+
+    private List<UnitResult> analyze(Unit unit, List<AnalysisVisitor> passes) {
+        List<UnitResult> results = new ArrayList<>();
+
+        if (!unit.nodeOnly()) {
+            TypeInference.annotate(unit.node(), table);
+        }
+
+        for (int i = 0; i < passes.size(); i++) {
+            var pass = passes.get(i);
+            int start = pass.getReports().size();
+
+            try {
+                if (unit.nodeOnly()) {
+                    pass.analyzeNode(unit.node(), table);
+                } else {
+                    pass.analyze(unit.node(), table);
+                }
+
+                var reports = pass.getReports();
+                results.add(new UnitResult(pass.getClass(), List.copyOf(reports.subList(start, reports.size())), null));
+            } catch (Exception e) {
+                results.add(new UnitResult(pass.getClass(), List.of(), e));
+
+                // The state of the pass is unknown after a failure, the next units get a new one
+                passes.set(i, analysisPasses.get(i).get());
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Splits the AST in units, in preorder.
+     */
+    private static List<Unit> getUnits(JmmNode root) {
+        List<Unit> units = new ArrayList<>();
+        units.add(new Unit(root, true));
+
+        for (var child : root.getChildren()) {
+            if (!Kind.CLASS_DECL.check(child)) {
+                units.add(new Unit(child, false));
+                continue;
+            }
+
+            units.add(new Unit(child, true));
+            for (var member : child.getChildren()) {
+                units.add(new Unit(member, false));
+            }
+        }
+
+        return units;
+    }
+
+    /**
+     * Fingerprint of everything that is not inside a method body, or null if methods are overloaded (the symbol
+     * table keeps methods by name, so the body of one would change the table of the other).
+     */
+    private static String getClassFingerprint(List<Unit> units) {
+        var fingerprint = new StringBuilder();
+        Set<String> methodNames = new HashSet<>();
+
+        for (var unit : units) {
+            var node = unit.node();
+
+            if (unit.nodeOnly()) {
+                appendNode(node, fingerprint);
+                fingerprint.append(";");
+                continue;
+            }
+
+            if (!Kind.METHOD_DECL.check(node)) {
+                appendTree(node, fingerprint);
+                continue;
+            }
+
+            if (!methodNames.add(node.get("name"))) {
+                return null;
+            }
+
+            // Signature of the method: its attributes, return type and parameters
+            appendNode(node, fingerprint);
+            fingerprint.append("(");
+            var children = node.getChildren();
+            for (int i = 0; i < children.size(); i++) {
+                var child = children.get(i);
+                boolean isReturnType = i == 0 && !node.get("name").equals("main");
+
+                if (isReturnType || Kind.PARAM.check(child)) {
+                    appendTree(child, fingerprint);
+                }
+            }
+            fingerprint.append(");");
+        }
+
+        return fingerprint.toString();
+    }
+
+    private static String getFingerprint(JmmNode node) {
+        var fingerprint = new StringBuilder();
+        appendTree(node, fingerprint);
+
+        return fingerprint.toString();
+    }
+
+    private static void appendTree(JmmNode node, StringBuilder fingerprint) {
+        appendNode(node, fingerprint);
+
+        fingerprint.append("{");
+        for (var child : node.getChildren()) {
+            appendTree(child, fingerprint);
+        }
+        fingerprint.append("}");
+    }
+
+    /**
+     * Kind and attributes of the node, except where it is in the file and its inferred type.
+     */
+    private static void appendNode(JmmNode node, StringBuilder fingerprint) {
+        fingerprint.append(node.getKind());
+
+        // Nodes of the same kind are built with their attributes in the same order
+        for (var attribute : node.getAttributes()) {
+            if (!IGNORED_ATTRIBUTES.contains(attribute)) {
+                fingerprint.append(' ').append(attribute).append('=').append(node.getObject(attribute));
+            }
+        }
+    }
+
+    private record Unit(JmmNode node, boolean nodeOnly) {
+    }
+
+    private record UnitResult(Class<?> passClass, List<Report> reports, Exception failure) {
+    }
+
+    /**
+     * Results of each pass on a method that started at the given position.
+     */
+    private record MethodAnalysis(int line, int column, List<UnitResult> results) {
+
+        MethodAnalysis movedTo(JmmNode method) {
+            int newLine = NodeUtils.getLine(method);
+            int newColumn = NodeUtils.getColumn(method);
+
+            if (newLine == line && newColumn == column) {
+                return this;
+            }
+
+            List<UnitResult> movedResults = new ArrayList<>();
+            for (var result : results) {
+                var movedReports = result.reports().stream()
+                        .map(report -> moveReport(report, newLine - line, newColumn - column))
+                        .toList();
+
+                movedResults.add(new UnitResult(result.passClass(), movedReports, result.failure()));
+            }
+
+            return new MethodAnalysis(newLine, newColumn, movedResults);
+        }
+
+        private Report moveReport(Report report, int lineOffset, int columnOffset) {
+            // Reports without a position stay that way
+            if (report.getLine() < 0) {
+                return report;
+            }
+
+            // Only what is in the first line of the method moves sideways
+            int newColumn = report.getLine() == line && report.getColumn() >= 0
+                    ? report.getColumn() + columnOffset
+                    : report.getColumn();
+
+            var moved = new Report(report.getType(), report.getStage(), report.getLine() + lineOffset, newColumn,
+                    report.getMessage());
+            report.getException().ifPresent(moved::setException);
+
+            return moved;
+        }
+    }
+}
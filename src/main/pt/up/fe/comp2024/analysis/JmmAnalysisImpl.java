@@ -8,25 +8,29 @@ import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.passes.*;
+import pt.up.fe.comp2024.metrics.Metrics;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class JmmAnalysisImpl implements JmmAnalysis {
 
 
-    private final List<AnalysisPass> analysisPasses;
+    // Passes accumulate reports, so each analysis gets fresh instances and this object can be reused
+    static final List<Supplier<AnalysisVisitor>> ANALYSIS_PASSES = List.of(
+            UndeclaredVariable::new,
+            InvalidMethodDecl::new,
+            InvalidConditions::new,
+            InvalidOperations::new,
+            InvalidAssignments::new,
+            InvalidVars::new
+    );
+
+    private final List<Supplier<AnalysisVisitor>> analysisPasses;
 
     public JmmAnalysisImpl() {
-        this.analysisPasses = List.of(
-                new UndeclaredVariable(),
-                new InvalidMethodDecl(),
-                new InvalidConditions(),
-                new InvalidOperations(),
-                new InvalidAssignments(),
-                new InvalidVars()
-        );
+        this.analysisPasses = ANALYSIS_PASSES;
     }
 
     @Override
@@ -34,26 +38,21 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         JmmNode rootNode = parserResult.getRootNode();
 
-        SymbolTable table = JmmSymbolTableBuilder.build(rootNode);
-
-        List<Report> reports = new ArrayList<>();
-
-        // Visit all nodes in the AST
-        for (var analysisPass : analysisPasses) {
-            try {
-                var passReports = analysisPass.analyze(rootNode, table);
-                reports.addAll(passReports);
-            } catch (Exception e) {
-                reports.add(Report.newError(Stage.SEMANTIC,
-                        -1,
-                        -1,
-                        "Problem while executing analysis pass '" + analysisPass.getClass() + "'",
-                        e)
-                );
-            }
+        SymbolTable table = Metrics.measure("semantic.symbolTable", () -> JmmSymbolTableBuilder.build(rootNode));
+        Metrics.measure("semantic.typeInference", () -> TypeInference.annotate(rootNode, table));
 
-        }
+        // Visit all nodes in the AST once, running every pass
+        List<Report> reports = Metrics.measure("semantic.passes",
+                () -> new FusedAnalysis(analysisPasses).analyze(rootNode, table));
 
         return new JmmSemanticsResult(parserResult, table, reports);
     }
+
+    static Report passFailed(Class<?> passClass, Exception e) {
+        return Report.newError(Stage.SEMANTIC,
+                -1,
+                -1,
+                "Problem while executing analysis pass '" + passClass + "'",
+                e);
+    }
 }
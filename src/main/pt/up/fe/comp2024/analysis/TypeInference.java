@@ -0,0 +1,27 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.TypeUtils;
+
+/**
+ * Computes the type of every expression once, right after the symbol table is built, and stores it in the node for
+ * the analysis passes and the OLLIR generator.
+ */
+public class TypeInference {
+
+    /**
+     * Annotates the expressions of the given subtree, children before parents so the type of a parent can use the
+     * types already stored in its children.
+     */
+    public static void annotate(JmmNode node, SymbolTable table) {
+        for (var child : node.getChildren()) {
+            annotate(child, table);
+        }
+
+        if (Kind.fromString(node.getKind()).isExpr()) {
+            TypeUtils.inferExprType(node, table);
+        }
+    }
+}
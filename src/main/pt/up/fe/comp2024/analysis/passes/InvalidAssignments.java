@@ -9,6 +9,7 @@ import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.ScopedSymbol;
 
 import java.util.Optional;
 
@@ -29,16 +30,13 @@ public class InvalidAssignments extends AnalysisVisitor {
             var method = assignStmt.getAncestor(Kind.METHOD_DECL).get();
 
             if (method.get("name").equals("main")) {
-                var checkLocals = table.getLocalVariables(method.get("name")).stream()
-                        .anyMatch(var -> var.getName().equals(varName));
+                var symbol = TypeUtils.resolveVar(varName, method.get("name"), table);
 
-                if (checkLocals) {
+                if (symbol.isPresent() && symbol.get().isLocal()) {
                     return null;
                 }
 
-                table.getFields().stream()
-                        .filter(f -> f.getName().equals(varName))
-                        .findFirst()
+                symbol.filter(ScopedSymbol::isField)
                         .ifPresent(
                                 f -> addReport(Report.newError(
                                         Stage.SEMANTIC,
@@ -81,15 +79,10 @@ public class InvalidAssignments extends AnalysisVisitor {
         private void validateAssignExpression(JmmNode ancestorMethod, String varName, JmmNode expr, SymbolTable table, boolean arrayAccess) {
                 var methodName = ancestorMethod.get("name");
 
-                table.getLocalVariables(methodName).stream()
-                        .filter(var -> var.getName().equals(varName))
-                        .findFirst()
-                        .ifPresentOrElse(
-                                localVar -> typeChecking(expr, localVar, table, arrayAccess),
-                                () -> table.getParameters(methodName).stream()
-                                        .filter(p -> p.getName().equals(varName))
-                                        .findFirst().ifPresent(param -> typeChecking(expr, param, table, arrayAccess))
-                        );
+                // Only locals and parameters are checked
+                TypeUtils.resolveVar(varName, methodName, table)
+                        .filter(symbol -> !symbol.isField())
+                        .ifPresent(symbol -> typeChecking(expr, symbol.getSymbol(), table, arrayAccess));
         }
 
         private void typeChecking(JmmNode expr, Symbol symbol, SymbolTable table, boolean arrayAccess) {
@@ -8,6 +8,7 @@ import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.ScopedSymbol;
 
 import static pt.up.fe.comp2024.ast.Kind.METHOD_DECL;
 import static pt.up.fe.comp2024.ast.Kind.THIS_EXPR;
@@ -196,20 +197,16 @@ public class InvalidOperations extends AnalysisVisitor {
 
         private Void visitVarRefExpr(JmmNode varRefExpr, SymbolTable table) {
             var varName = varRefExpr.get("name");
-            var isField = table.getFields().stream().anyMatch(f -> f.getName().equals(varName));
 
             var methodNode = varRefExpr.getAncestor(METHOD_DECL)
                     .orElseThrow(() -> new RuntimeException("Variable reference does not have a method ancestor."));
+            var methodName = methodNode.get("name");
 
             // `main` is the only static method
-            if (isField && methodNode.get("name").equals("main")) {
-                var checkLocals = table.getLocalVariables(methodNode.get("name")).stream()
-                        .anyMatch(l -> l.getName().equals(varName));
-
-                if (checkLocals) {
-                    return null;
-                }
-
+            var isField = TypeUtils.resolveVar(varName, methodName, table)
+                    .map(ScopedSymbol::isField)
+                    .orElse(false);
+            if (isField && methodName.equals("main")) {
                 addReport(Report.newError(
                         Stage.SEMANTIC,
                         NodeUtils.getLine(varRefExpr),
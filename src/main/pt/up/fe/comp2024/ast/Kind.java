@@ -4,6 +4,8 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.specs.util.SpecsStrings;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 public enum Kind {
@@ -41,9 +43,17 @@ public enum Kind {
 
 
     private static final Set<Kind> STATEMENTS = Set.of(EXPR_STMT, IF_STMT, WHILE_STMT, ASSIGN_STMT, ASSIGN_ARRAY_STMT, BLOCK_STMT);
-    private static final Set<Kind> EXPRESSIONS = Set.of(BINARY_EXPR, ARRAY_ACCESS, METHOD_EXPR, NEW_ARRAY, NEW_CLASS, LENGTH_EXPR, NEGATION, ARRAY_LITERAL, INTEGER_LITERAL, BOOLEAN_LITERAL, VAR_REF_EXPR, THIS_EXPR);
+    private static final Set<Kind> EXPRESSIONS = Set.of(PRIORITY, BINARY_EXPR, ARRAY_ACCESS, METHOD_EXPR, NEW_ARRAY, NEW_CLASS, LENGTH_EXPR, NEGATION, ARRAY_LITERAL, INTEGER_LITERAL, BOOLEAN_LITERAL, VAR_REF_EXPR, THIS_EXPR);
     private static final Set<Kind> TYPES = Set.of(BOOLEAN_TYPE, INT_TYPE, STRING_TYPE, CLASS_TYPE, ARRAY_TYPE, VARARGS_TYPE);
 
+    private static final Map<String, Kind> BY_NODE_NAME = new HashMap<>();
+
+    static {
+        for (Kind k : Kind.values()) {
+            BY_NODE_NAME.put(k.getNodeName(), k);
+        }
+    }
+
     private final String name;
 
     private Kind(String name) {
@@ -56,10 +66,9 @@ public enum Kind {
 
     public static Kind fromString(String kind) {
 
-        for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+        var k = BY_NODE_NAME.get(kind);
+        if (k != null) {
+            return k;
         }
         throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
     }
@@ -1,11 +1,12 @@
 package pt.up.fe.comp2024.ast;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.ScopedSymbol;
 
 import java.util.Optional;
 
@@ -15,6 +16,9 @@ public class TypeUtils {
     private static final String BOOLEAN_TYPE_NAME = "boolean";
     private static final String STRING_TYPE_NAME = "String";
 
+    // Attribute where the type inference pass stores the type of each expression
+    private static final String EXPR_TYPE = "exprType";
+
     public static String getIntTypeName() {
         return INT_TYPE_NAME;
     }
@@ -27,14 +31,49 @@ public class TypeUtils {
         return STRING_TYPE_NAME;
     }
 
+    public static String getExprTypeAttribute() {
+        return EXPR_TYPE;
+    }
+
     /**
-     * Gets the {@link Type} of an arbitrary expression.
+     * Gets the {@link Type} of an arbitrary expression, from the type stored by the type inference pass if there is
+     * one.
      *
      * @param expr
      * @param table
      * @return
      */
     public static Type getExprType(JmmNode expr, SymbolTable table) {
+        var inferredType = expr.getOptionalObject(EXPR_TYPE);
+        if (inferredType.isPresent()) {
+            return (Type) inferredType.get();
+        }
+
+        return computeExprType(expr, table);
+    }
+
+    /**
+     * Computes the type of the expression and stores it in the node, so later calls of
+     * {@link #getExprType(JmmNode, SymbolTable)} do not compute it again. Types that cannot be computed are not
+     * stored, so asking for them again fails (or returns null) in the same way.
+     *
+     * @param expr
+     * @param table
+     */
+    public static void inferExprType(JmmNode expr, SymbolTable table) {
+        Type type;
+        try {
+            type = computeExprType(expr, table);
+        } catch (RuntimeException e) {
+            return;
+        }
+
+        if (type != null) {
+            expr.putObject(EXPR_TYPE, type);
+        }
+    }
+
+    private static Type computeExprType(JmmNode expr, SymbolTable table) {
         var kind = Kind.fromString(expr.getKind());
         return switch (kind) {
             case BINARY_EXPR -> getBinExprType(expr);
@@ -191,30 +230,48 @@ public class TypeUtils {
 
     private static Type findTypeInTable(String name, SymbolTable table, Optional<JmmNode> methodDecl) {
         if (methodDecl.isPresent()) {
-            var methodName = methodDecl.get().get("name");
-            var type = table.getLocalVariables(methodName).stream()
-                    .filter(var -> var.getName().equals(name))
-                    .map(Symbol::getType)
-                    .findFirst()
-                    .or(
-                            () -> table.getParameters(methodName).stream()
-                                    .filter(var -> var.getName().equals(name))
-                                    .map(Symbol::getType)
-                                    .findFirst()
-                                    .or(
-                                            () -> table.getFields().stream()
-                                                    .filter(var -> var.getName().equals(name))
-                                                    .map(Symbol::getType)
-                                                    .findFirst()
-                                    )
-                    );
-
-            return type.orElse(null);
+            return resolveVar(name, methodDecl.get().get("name"), table)
+                    .map(ScopedSymbol::getType)
+                    .orElse(null);
         } else {
             throw new RuntimeException("Variable reference outside of method declaration");
         }
     }
 
+    /**
+     * Resolves a variable used inside the given method: a local, else a parameter, else a field.
+     *
+     * @param name
+     * @param methodName
+     * @param table
+     * @return the symbol the name refers to, or empty if it is not declared
+     */
+    public static Optional<ScopedSymbol> resolveVar(String name, String methodName, SymbolTable table) {
+        if (table instanceof JmmSymbolTable jmmTable) {
+            return jmmTable.resolve(methodName, name);
+        }
+
+        // Tables without a scope index are searched one list at a time
+        var local = table.getLocalVariables(methodName).stream()
+                .filter(var -> var.getName().equals(name))
+                .findFirst();
+        if (local.isPresent()) {
+            return Optional.of(new ScopedSymbol(local.get(), ScopedSymbol.Origin.LOCAL, -1));
+        }
+
+        var params = table.getParameters(methodName);
+        for (int i = 0; i < params.size(); i++) {
+            if (params.get(i).getName().equals(name)) {
+                return Optional.of(new ScopedSymbol(params.get(i), ScopedSymbol.Origin.PARAM, i));
+            }
+        }
+
+        return table.getFields().stream()
+                .filter(var -> var.getName().equals(name))
+                .findFirst()
+                .map(field -> new ScopedSymbol(field, ScopedSymbol.Origin.FIELD, -1));
+    }
+
     private static Type getArrayAccess(JmmNode arrayAccess, SymbolTable table) {
         var arrayType = getExprType(arrayAccess.getJmmChild(0), table);
 
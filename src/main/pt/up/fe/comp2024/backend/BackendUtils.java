@@ -0,0 +1,260 @@
+package pt.up.fe.comp2024.backend;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.tree.TreeNode;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.util.List;
+
+/**
+ * Instruction selection shared by the Jasmin and the class file backends, so both generate the same bytecode.
+ * <p>
+ * Instructions are selected by their Jasmin name, e.g. "if_icmplt", which the class file backend maps to its opcode.
+ */
+public class BackendUtils {
+
+    /**
+     * A conditional jump, and the values it compares, loaded in this order before it.
+     */
+    public record Branch(String instruction, List<TreeNode> operands) {
+    }
+
+    /**
+     * Returns the descriptor of a given Ollir type, e.g. I or Ljava/lang/String;.
+     * @param type Ollir type
+     * @param className Name of the class being generated, for the type of 'this'
+     * @return JVM type descriptor
+     */
+    public static String getDescriptor(Type type, String className) {
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> "I";
+            case BOOLEAN -> "Z";
+            case VOID -> "V";
+            case STRING -> "Ljava/lang/String;";
+            case CLASS, THIS, OBJECTREF -> {
+                var typeName = ((ClassType) type).getName();
+                yield "L" + (typeName.equals("this") ? className : typeName) + ";";
+            }
+            case ARRAYREF -> "[I";
+            default -> throw new NotImplementedException(type.getTypeOfElement());
+        };
+    }
+
+    /**
+     * Returns the constant added to the destination if the assignment is 'x = x + c', 'x = c + x' or 'x = x - c' on
+     * an int local and the result fits in iinc, or null otherwise.
+     */
+    public static Integer getIncrement(Operand dest, Instruction rhs) {
+        if (dest instanceof ArrayOperand || dest.getType().getTypeOfElement() != ElementType.INT32
+                || !(rhs instanceof BinaryOpInstruction binaryOp)) {
+            return null;
+        }
+
+        var opType = binaryOp.getOperation().getOpType();
+        var left = binaryOp.getLeftOperand();
+        var right = binaryOp.getRightOperand();
+
+        Integer increment;
+        if (isSameLocal(dest, left) && right instanceof LiteralElement literal) {
+            increment = getIntValue(literal.getLiteral());
+        } else if (opType == OperationType.ADD && isSameLocal(dest, right) && left instanceof LiteralElement literal) {
+            increment = getIntValue(literal.getLiteral());
+        } else {
+            return null;
+        }
+
+        if (increment == null) {
+            return null;
+        }
+
+        increment = switch (opType) {
+            case ADD -> increment;
+            case SUB -> -increment;
+            default -> Byte.MAX_VALUE + 1;
+        };
+
+        return increment >= Byte.MIN_VALUE && increment <= Byte.MAX_VALUE ? increment : null;
+    }
+
+    private static boolean isSameLocal(Operand dest, Element element) {
+        return element instanceof Operand operand && !(operand instanceof ArrayOperand)
+                && operand.getName().equals(dest.getName());
+    }
+
+    /**
+     * @return the suffix of the branch instructions for a comparison (e.g. "lt" for if_icmplt and iflt), or null if
+     * the operation is not a comparison
+     */
+    public static String getComparison(OperationType opType) {
+        return switch (opType) {
+            case LTH -> "lt";
+            case GTH -> "gt";
+            case LTE -> "le";
+            case GTE -> "ge";
+            case EQ -> "eq";
+            case NEQ -> "ne";
+            default -> null;
+        };
+    }
+
+    /**
+     * @return the comparison that gives the same result with the operands swapped, e.g. 0 < x is x > 0
+     */
+    public static String getSwappedComparison(String comparison) {
+        return switch (comparison) {
+            case "lt" -> "gt";
+            case "gt" -> "lt";
+            case "le" -> "ge";
+            case "ge" -> "le";
+            default -> comparison;
+        };
+    }
+
+    public static boolean isZero(Element element) {
+        return element instanceof LiteralElement literal && literal.getLiteral().equals("0");
+    }
+
+    /**
+     * Selects the jump of a branch on the condition. Comparisons jump on their own, without materialising the boolean
+     * first, and compare with zero directly when an operand is 0. A negation jumps if its operand is false, and any
+     * other condition if it is true.
+     */
+    public static Branch getBranch(Instruction condition) {
+        if (condition instanceof BinaryOpInstruction binaryOp) {
+            var comparison = getComparison(binaryOp.getOperation().getOpType());
+            var left = binaryOp.getLeftOperand();
+            var right = binaryOp.getRightOperand();
+
+            if (comparison != null && isZero(right)) {
+                return new Branch("if" + comparison, List.of(left));
+            }
+
+            if (comparison != null && isZero(left)) {
+                return new Branch("if" + getSwappedComparison(comparison), List.of(right));
+            }
+
+            if (comparison != null) {
+                return new Branch("if_icmp" + comparison, List.of(left, right));
+            }
+        }
+
+        if (condition instanceof UnaryOpInstruction unaryOp
+                && unaryOp.getOperation().getOpType() == OperationType.NOTB) {
+            return new Branch("ifeq", List.of(unaryOp.getOperand()));
+        }
+
+        return new Branch("ifne", List.of(condition));
+    }
+
+    /**
+     * Selects the shortest instruction that loads a literal: iconst for -1 to 5, bipush and sipush for what fits in
+     * a byte and a short, and ldc for everything else, including strings. Only the last three take the value as an
+     * argument.
+     */
+    public static String getConstantInstruction(String literal) {
+        var value = getIntValue(literal);
+
+        if (value == null) {
+            return "ldc";
+        }
+
+        if (value == -1) {
+            return "iconst_m1";
+        }
+
+        if (value >= 0 && value <= 5) {
+            return "iconst_" + value;
+        }
+
+        if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            return "bipush";
+        }
+
+        return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE ? "sipush" : "ldc";
+    }
+
+    /**
+     * @return the value of an int literal, or null if it is not one, e.g. a string
+     */
+    public static Integer getIntValue(String literal) {
+        try {
+            return Integer.parseInt(literal);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the static call does not need its caller loaded, because it is an imported class or the
+     * superclass
+     */
+    public static boolean isClassReference(CallInstruction callInst, ClassUnit classUnit) {
+        var callerName = ((Operand) callInst.getOperands().get(0)).getName();
+        var methodName = ((LiteralElement) callInst.getMethodName()).getLiteral().replace("\"", "");
+
+        boolean checkImport = classUnit.getImports().stream().anyMatch(
+                imported -> imported.equals(callerName) || imported.equals(methodName)
+        );
+
+        boolean checkSuper = classUnit.getSuperClass() != null && classUnit.getSuperClass().equals(callerName);
+
+        return checkImport || checkSuper;
+    }
+
+    /**
+     * @return the name of the class the called method or constructor belongs to, from the type of the caller
+     */
+    public static String getOwner(CallInstruction callInst, String className) {
+        var caller = callInst.getOperands().get(0);
+
+        return ((Operand) caller).getName().equals("this") ? className : ((ClassType) caller.getType()).getName();
+    }
+
+    public static String getMethodName(CallInstruction callInst) {
+        return ((LiteralElement) callInst.getMethodName()).getLiteral().replace("\"", "");
+    }
+
+    /**
+     * @return the descriptor of the called method, from the types of its arguments and of its result
+     */
+    public static String getCallDescriptor(CallInstruction callInst, String className) {
+        var descriptor = new StringBuilder("(");
+
+        for (Element element : callInst.getArguments()) {
+            descriptor.append(getDescriptor(element.getType(), className));
+        }
+
+        return descriptor.append(")").append(getDescriptor(callInst.getReturnType(), className)).toString();
+    }
+
+    /**
+     * @return the descriptor of a method of the class being generated
+     */
+    public static String getMethodDescriptor(Method method, String className) {
+        var descriptor = new StringBuilder("(");
+
+        for (var param : method.getParams()) {
+            // TODO: remove if when array types are implemented
+            if (param.getType().toString().equals("STRING[]")) {
+                descriptor.append("[Ljava/lang/String;");
+            } else {
+                descriptor.append(getDescriptor(param.getType(), className));
+            }
+        }
+
+        return descriptor.append(")").append(getDescriptor(method.getReturnType(), className)).toString();
+    }
+
+    public static int getRegister(Method method, Operand operand) {
+        return method.getVarTable().get(operand.getName()).getVirtualReg();
+    }
+
+    /**
+     * @return true if the return instruction returns an int or boolean, otherwise it returns nothing
+     */
+    public static boolean returnsInt(ReturnInstruction returnInst) {
+        var returnType = returnInst.getReturnType().toString();
+
+        return returnType.equals("INT32") || returnType.equals("BOOLEAN");
+    }
+}
@@ -0,0 +1,478 @@
+package pt.up.fe.comp2024.backend;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.tree.TreeNode;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.classmap.BiConsumerClassMap;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates a JVM class file from an OllirResult, without going through Jasmin.
+ * <p>
+ * Selects the same instructions as {@link JasminGenerator}, but writes them with ASM, which also builds the constant
+ * pool and computes the maximum stack and locals and the stack map frames of each method.
+ * <p>
+ * One ClassFileGenerator instance per OllirResult.
+ */
+public class ClassFileGenerator {
+
+    // Classes with stack map frames, which the verifier of newer versions requires
+    private static final int CLASS_VERSION = Opcodes.V1_8;
+
+    private final OllirResult ollirResult;
+
+    private final String className;
+
+    List<Report> reports;
+
+    byte[] classFile;
+
+    Method currentMethod;
+
+    // Labels of the current method, by name
+    private Map<String, Label> currentLabels;
+
+    // Labels of the current method by the instruction they point at
+    private Map<Instruction, List<String>> labelsByInstruction;
+
+    private final BiConsumerClassMap<TreeNode, MethodVisitor> generators;
+
+    public ClassFileGenerator(OllirResult ollirResult) {
+        this.ollirResult = ollirResult;
+        this.className = ollirResult.getOllirClass().getClassName();
+
+        reports = new ArrayList<>();
+        classFile = null;
+        currentMethod = null;
+
+        this.generators = new BiConsumerClassMap<>();
+        generators.put(LiteralElement.class, this::generateLiteral);
+        generators.put(Operand.class, this::generateOperand);
+        generators.put(Instruction.class, this::generateInstruction);
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    public byte[] build() {
+
+        // This way, build is idempotent
+        if (classFile == null) {
+            var classWriter = new FrameComputingClassWriter(className, getSuperClass(ollirResult.getOllirClass()));
+            generateClassUnit(ollirResult.getOllirClass(), classWriter);
+            classFile = classWriter.toByteArray();
+        }
+
+        return classFile;
+    }
+
+    private void generateClassUnit(ClassUnit classUnit, ClassWriter classWriter) {
+
+        var superClass = getSuperClass(classUnit);
+
+        int access = Opcodes.ACC_SUPER | (classUnit.getClassAccessModifier() == AccessModifier.DEFAULT
+                ? Opcodes.ACC_PUBLIC
+                : getAccess(classUnit.getClassAccessModifier()));
+        classWriter.visit(CLASS_VERSION, access, className, null, superClass, null);
+
+        for (var field : classUnit.getFields()) {
+            classWriter.visitField(Opcodes.ACC_PUBLIC, field.getFieldName(),
+                    BackendUtils.getDescriptor(field.getFieldType(), className), null, null).visitEnd();
+        }
+
+        // generate a single constructor method
+        var constructor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, superClass, "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        // generate code for all other methods
+        for (var method : classUnit.getMethods()) {
+
+            // Ignore constructor, since there is always one constructor that receives no arguments
+            if (method.isConstructMethod()) {
+                continue;
+            }
+
+            generateMethod(method, classWriter);
+        }
+
+        classWriter.visitEnd();
+    }
+
+    private void generateMethod(Method method, ClassWriter classWriter) {
+
+        // set method
+        currentMethod = method;
+        currentLabels = new HashMap<>();
+        labelsByInstruction = new HashMap<>();
+        for (var label : method.getLabels().entrySet()) {
+            labelsByInstruction.computeIfAbsent(label.getValue(), inst -> new ArrayList<>()).add(label.getKey());
+        }
+
+        int access = getAccess(method.getMethodAccessModifier());
+        if (method.getMethodName().equals("main")) {
+            access |= Opcodes.ACC_STATIC;
+        }
+
+        var mv = classWriter.visitMethod(access, method.getMethodName(),
+                BackendUtils.getMethodDescriptor(method, className), null, null);
+        mv.visitCode();
+
+        for (var inst : method.getInstructions()) {
+            generators.accept(inst, mv);
+        }
+
+        // Computed by the class writer
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // unset method
+        currentMethod = null;
+        currentLabels = null;
+        labelsByInstruction = null;
+    }
+
+    private void generateInstruction(Instruction inst, MethodVisitor mv) {
+        for (var label : labelsByInstruction.getOrDefault(inst, List.of())) {
+            mv.visitLabel(getLabel(label));
+        }
+
+        switch (inst.getInstType()) {
+            case ASSIGN -> generateAssign((AssignInstruction) inst, mv);
+            case NOPER -> {
+                if (inst instanceof SingleOpInstruction singleOp) {
+                    generators.accept(singleOp.getSingleOperand(), mv);
+                } else {
+                    throw new NotImplementedException("TODO: " + inst.getClass());
+                }
+            }
+            case BINARYOPER -> generateBinaryOp((BinaryOpInstruction) inst, mv);
+            case RETURN -> generateReturn((ReturnInstruction) inst, mv);
+            case CALL -> generateCall((CallInstruction) inst, false, mv);
+            case PUTFIELD -> generatePutField((PutFieldInstruction) inst, mv);
+            case GETFIELD -> generateGetField((GetFieldInstruction) inst, mv);
+            case UNARYOPER -> generateUnaryOp((UnaryOpInstruction) inst, mv);
+            case BRANCH -> generateCondBranch((CondBranchInstruction) inst, mv);
+            case GOTO -> mv.visitJumpInsn(Opcodes.GOTO, getLabel(((GotoInstruction) inst).getLabel()));
+        }
+    }
+
+    private void generateAssign(AssignInstruction assign, MethodVisitor mv) {
+        var lhs = assign.getDest();
+
+        if (!(lhs instanceof Operand operand)) {
+            throw new NotImplementedException(lhs.getClass());
+        }
+
+        var increment = BackendUtils.getIncrement(operand, assign.getRhs());
+        if (increment != null) {
+            mv.visitIincInsn(BackendUtils.getRegister(currentMethod, operand), increment);
+            return;
+        }
+
+        if (lhs instanceof ArrayOperand arrayOperand) {
+            local(Opcodes.ALOAD, operand, mv);
+            generators.accept(arrayOperand.getIndexOperands().get(0), mv);
+            generateValue(assign.getRhs(), mv);
+            mv.visitInsn(Opcodes.IASTORE);
+        } else {
+            generateValue(assign.getRhs(), mv);
+            store(operand, mv);
+        }
+    }
+
+    /**
+     * Leaves the result of the instruction on the stack, even if it is a call (which pops it otherwise).
+     */
+    private void generateValue(Instruction inst, MethodVisitor mv) {
+        if (inst instanceof CallInstruction callInst) {
+            generateCall(callInst, true, mv);
+        } else {
+            generators.accept(inst, mv);
+        }
+    }
+
+    private void generateLiteral(LiteralElement literal, MethodVisitor mv) {
+        var value = literal.getLiteral();
+        var instruction = BackendUtils.getConstantInstruction(value);
+        var intValue = BackendUtils.getIntValue(value);
+
+        switch (instruction) {
+            case "bipush", "sipush" -> mv.visitIntInsn(getOpcode(instruction), intValue);
+            case "ldc" -> mv.visitLdcInsn(intValue != null ? intValue : value.replace("\"", ""));
+            default -> mv.visitInsn(getOpcode(instruction));
+        }
+    }
+
+    private void generateOperand(Operand operand, MethodVisitor mv) {
+        switch (operand.getType().getTypeOfElement()) {
+            case STRING, OBJECTREF, ARRAYREF -> local(Opcodes.ALOAD, operand, mv);
+            case THIS -> mv.visitVarInsn(Opcodes.ALOAD, 0);
+            case INT32, BOOLEAN -> {
+                if (operand instanceof ArrayOperand arrayOperand) {
+                    local(Opcodes.ALOAD, operand, mv);
+                    generators.accept(arrayOperand.getIndexOperands().get(0), mv);
+                    mv.visitInsn(Opcodes.IALOAD);
+                } else {
+                    local(Opcodes.ILOAD, operand, mv);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void store(Operand operand, MethodVisitor mv) {
+        switch (operand.getType().getTypeOfElement()) {
+            case STRING, CLASS, OBJECTREF, ARRAYREF -> local(Opcodes.ASTORE, operand, mv);
+            case THIS -> mv.visitVarInsn(Opcodes.ASTORE, 0);
+            default -> local(Opcodes.ISTORE, operand, mv);
+        }
+    }
+
+    private void generateBinaryOp(BinaryOpInstruction binaryOp, MethodVisitor mv) {
+        generators.accept(binaryOp.getLeftOperand(), mv);
+        generators.accept(binaryOp.getRightOperand(), mv);
+
+        var opType = binaryOp.getOperation().getOpType();
+
+        switch (opType) {
+            case ADD -> mv.visitInsn(Opcodes.IADD);
+            case MUL -> mv.visitInsn(Opcodes.IMUL);
+            case DIV -> mv.visitInsn(Opcodes.IDIV);
+            case SUB -> mv.visitInsn(Opcodes.ISUB);
+            case LTH, GTH, LTE, GTE, EQ, NEQ -> {
+                // Only reached when the boolean is stored, conditions are fused with their branch
+                var trueLabel = new Label();
+                var endLabel = new Label();
+
+                mv.visitJumpInsn(getOpcode("if_icmp" + BackendUtils.getComparison(opType)), trueLabel);
+                mv.visitInsn(Opcodes.ICONST_0);
+                mv.visitJumpInsn(Opcodes.GOTO, endLabel);
+                mv.visitLabel(trueLabel);
+                mv.visitInsn(Opcodes.ICONST_1);
+                mv.visitLabel(endLabel);
+            }
+            case AND -> throw new RuntimeException("Code should not reach here");
+            default -> throw new NotImplementedException(opType);
+        }
+    }
+
+    private void generateReturn(ReturnInstruction returnInst, MethodVisitor mv) {
+        if (returnInst.getOperand() != null) {
+            generators.accept(returnInst.getOperand(), mv);
+        }
+
+        mv.visitInsn(BackendUtils.returnsInt(returnInst) ? Opcodes.IRETURN : Opcodes.RETURN);
+    }
+
+    /**
+     * @param keepResult if the value returned by the call stays on the stack, otherwise it is popped
+     */
+    private void generateCall(CallInstruction callInst, boolean keepResult, MethodVisitor mv) {
+        var invocationType = callInst.getInvocationType().toString();
+
+        switch (invocationType) {
+            case "NEW" -> {
+                if (callInst.getReturnType().getTypeOfElement() == ElementType.OBJECTREF) {
+                    // The object is stored in a variable and then initialised through it by an invokespecial of
+                    // its own
+                    for (var element : callInst.getOperands()) {
+                        mv.visitTypeInsn(Opcodes.NEW, ((Operand) element).getName());
+                    }
+                } else if (callInst.getReturnType().getTypeOfElement() == ElementType.ARRAYREF) {
+                    generators.accept(callInst.getArguments().get(0), mv);
+                    mv.visitIntInsn(Opcodes.NEWARRAY, Opcodes.T_INT);
+                } else {
+                    throw new NotImplementedException(callInst.getReturnType().getTypeOfElement());
+                }
+            }
+            case "invokespecial" -> {
+                generators.accept(callInst.getOperands().get(0), mv);
+                mv.visitMethodInsn(Opcodes.INVOKESPECIAL, BackendUtils.getOwner(callInst, className), "<init>",
+                        BackendUtils.getCallDescriptor(callInst, className), false);
+            }
+            case "invokestatic" -> {
+                if (!BackendUtils.isClassReference(callInst, currentMethod.getOllirClass())) {
+                    generators.accept(callInst.getOperands().get(0), mv);
+                }
+                loadArguments(callInst, mv);
+
+                var callerName = ((Operand) callInst.getOperands().get(0)).getName();
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, callerName, BackendUtils.getMethodName(callInst),
+                        BackendUtils.getCallDescriptor(callInst, className), false);
+            }
+            case "invokevirtual" -> {
+                generators.accept(callInst.getOperands().get(0), mv);
+                loadArguments(callInst, mv);
+
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, BackendUtils.getOwner(callInst, className),
+                        BackendUtils.getMethodName(callInst), BackendUtils.getCallDescriptor(callInst, className),
+                        false);
+            }
+            case "arraylength" -> {
+                generators.accept(callInst.getOperands().get(0), mv);
+                mv.visitInsn(Opcodes.ARRAYLENGTH);
+            }
+            default -> throw new NotImplementedException(callInst.getInvocationType());
+        }
+
+        if (!keepResult && callInst.getReturnType().getTypeOfElement() != ElementType.VOID) {
+            mv.visitInsn(Opcodes.POP);
+        }
+    }
+
+    private void loadArguments(CallInstruction callInst, MethodVisitor mv) {
+        // remove first two operands, since they are the caller and the method name
+        for (var element : callInst.getOperands().subList(2, callInst.getOperands().size())) {
+            generators.accept(element, mv);
+        }
+    }
+
+    private void generatePutField(PutFieldInstruction putField, MethodVisitor mv) {
+        var field = (Operand) putField.getOperands().get(1);
+
+        generators.accept(putField.getOperands().get(0), mv);
+        generators.accept(putField.getOperands().get(2), mv);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, className, field.getName(),
+                BackendUtils.getDescriptor(field.getType(), className));
+    }
+
+    private void generateGetField(GetFieldInstruction getField, MethodVisitor mv) {
+        var field = (Operand) getField.getOperands().get(1);
+
+        generators.accept(getField.getOperands().get(0), mv);
+        mv.visitFieldInsn(Opcodes.GETFIELD, className, field.getName(),
+                BackendUtils.getDescriptor(field.getType(), className));
+    }
+
+    private void generateUnaryOp(UnaryOpInstruction unaryOp, MethodVisitor mv) {
+        generators.accept(unaryOp.getOperand(), mv);
+
+        if (unaryOp.getOperation().getOpType() == OperationType.NOTB) {
+            mv.visitInsn(Opcodes.ICONST_1);
+            mv.visitInsn(Opcodes.IXOR);
+        } else {
+            throw new NotImplementedException(unaryOp.getOperation().getOpType());
+        }
+    }
+
+    private void generateCondBranch(CondBranchInstruction condBranch, MethodVisitor mv) {
+        var branch = BackendUtils.getBranch(condBranch.getCondition());
+
+        for (var operand : branch.operands()) {
+            generators.accept(operand, mv);
+        }
+
+        mv.visitJumpInsn(getOpcode(branch.instruction()), getLabel(condBranch.getLabel()));
+    }
+
+    // -----------------------------------------------------------------
+    // Utils
+    // -----------------------------------------------------------------
+
+    /**
+     * Loads or stores a local variable.
+     */
+    private void local(int opcode, Operand operand, MethodVisitor mv) {
+        mv.visitVarInsn(opcode, BackendUtils.getRegister(currentMethod, operand));
+    }
+
+    private static String getSuperClass(ClassUnit classUnit) {
+        return classUnit.getSuperClass() == null ? "java/lang/Object" : classUnit.getSuperClass();
+    }
+
+    private Label getLabel(String name) {
+        return currentLabels.computeIfAbsent(name, key -> new Label());
+    }
+
+    private static int getAccess(AccessModifier modifier) {
+        return switch (modifier) {
+            case PUBLIC -> Opcodes.ACC_PUBLIC;
+            case PRIVATE -> Opcodes.ACC_PRIVATE;
+            case PROTECTED -> Opcodes.ACC_PROTECTED;
+            default -> 0;
+        };
+    }
+
+    /**
+     * @return the opcode of an instruction {@link BackendUtils} selects by its Jasmin name, e.g. IFLT for "iflt"
+     */
+    private static int getOpcode(String instruction) {
+        return switch (instruction) {
+            case "iconst_m1" -> Opcodes.ICONST_M1;
+            case "iconst_0" -> Opcodes.ICONST_0;
+            case "iconst_1" -> Opcodes.ICONST_1;
+            case "iconst_2" -> Opcodes.ICONST_2;
+            case "iconst_3" -> Opcodes.ICONST_3;
+            case "iconst_4" -> Opcodes.ICONST_4;
+            case "iconst_5" -> Opcodes.ICONST_5;
+            case "bipush" -> Opcodes.BIPUSH;
+            case "sipush" -> Opcodes.SIPUSH;
+            case "iflt" -> Opcodes.IFLT;
+            case "ifgt" -> Opcodes.IFGT;
+            case "ifle" -> Opcodes.IFLE;
+            case "ifge" -> Opcodes.IFGE;
+            case "ifeq" -> Opcodes.IFEQ;
+            case "ifne" -> Opcodes.IFNE;
+            case "if_icmplt" -> Opcodes.IF_ICMPLT;
+            case "if_icmpgt" -> Opcodes.IF_ICMPGT;
+            case "if_icmple" -> Opcodes.IF_ICMPLE;
+            case "if_icmpge" -> Opcodes.IF_ICMPGE;
+            case "if_icmpeq" -> Opcodes.IF_ICMPEQ;
+            case "if_icmpne" -> Opcodes.IF_ICMPNE;
+            default -> throw new NotImplementedException(instruction);
+        };
+    }
+
+    /**
+     * Computes the stack map frames without loading the classes of the program, which may not be compiled yet.
+     * <p>
+     * Assumes the only class hierarchy to merge at branch joins is the class being generated and its superclass:
+     * Jmm knows imported classes only by name, so where two other classes meet the frame says Object. Code that then
+     * uses such a variable as one of the two classes does not verify.
+     */
+    private static class FrameComputingClassWriter extends ClassWriter {
+
+        private final String className;
+
+        private final String superClass;
+
+        FrameComputingClassWriter(String className, String superClass) {
+            super(ClassWriter.COMPUTE_FRAMES);
+
+            this.className = className;
+            this.superClass = superClass;
+        }
+
+        @Override
+        protected String getCommonSuperClass(String type1, String type2) {
+            if (type1.equals(type2)) {
+                return type1;
+            }
+
+            // An object of the class being generated can be used as its superclass
+            if ((type1.equals(className) && type2.equals(superClass))
+                    || (type1.equals(superClass) && type2.equals(className))) {
+                return superClass;
+            }
+
+            return "java/lang/Object";
+        }
+    }
+}
@@ -3,17 +3,30 @@ package pt.up.fe.comp2024.backend;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.output.OutputSink;
 
 public class JasminBackendImpl implements JasminBackend {
 
+    private final OutputSink sink;
+
+    public JasminBackendImpl() {
+        this(OutputSink.NONE);
+    }
+
+    /**
+     * @param sink Where the generated Jasmin code is written
+     */
+    public JasminBackendImpl(OutputSink sink) {
+        this.sink = sink;
+    }
+
     @Override
     public JasminResult toJasmin(OllirResult ollirResult) {
 
+        // JasminResult holds the code as a String, so it is built in memory even though the generator can stream it
         var jasminGenerator = new JasminGenerator(ollirResult);
         var jasminCode = jasminGenerator.build();
-        System.out.println("The Jasmin code is as follows:");
-        System.out.println(jasminCode);
-        System.out.println("<----------------------------->");
+        sink.write(ollirResult.getOllirClass().getClassName(), OutputSink.Representation.JASMIN, jasminCode);
 
         return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
     }
@@ -4,24 +4,28 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
-import pt.up.fe.specs.util.classmap.FunctionClassMap;
+import pt.up.fe.specs.util.classmap.BiConsumerClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
-import pt.up.fe.specs.util.utilities.StringLines;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
  * Generates Jasmin code from an OllirResult.
  * <p>
+ * The code is written to a {@link JasminWriter} as it is generated, which also follows the depth of the operand stack
+ * of each instruction. {@link #build(Appendable)} only keeps the body of the method being generated in memory, because
+ * its maximum stack size has to be written before it. {@link #build()} still builds the whole class in a String, which
+ * is what {@link JasminBackendImpl} needs for the JasminResult.
+ * <p>
  * One JasminGenerator instance per OllirResult.
  */
 public class JasminGenerator {
 
     private static final String NL = "\n";
-    private static final String TAB = "   ";
 
     private final OllirResult ollirResult;
 
@@ -31,7 +35,13 @@ public class JasminGenerator {
 
     Method currentMethod;
 
-    private final FunctionClassMap<TreeNode, String> generators;
+    // Labels of the current method by the instruction they point at
+    private Map<Instruction, List<String>> currentLabels;
+
+    // Body of the current method, reused between methods
+    private final StringBuilder methodBody;
+
+    private final BiConsumerClassMap<TreeNode, JasminWriter> generators;
 
     private int binaryLabelCounter = 0;
 
@@ -41,8 +51,10 @@ public class JasminGenerator {
         reports = new ArrayList<>();
         code = null;
         currentMethod = null;
+        currentLabels = null;
+        methodBody = new StringBuilder();
 
-        this.generators = new FunctionClassMap<>();
+        this.generators = new BiConsumerClassMap<>();
         generators.put(ClassUnit.class, this::generateClassUnit);
         generators.put(Method.class, this::generateMethod);
         generators.put(LiteralElement.class, this::generateLiteral);
@@ -58,90 +70,76 @@ public class JasminGenerator {
 
         // This way, build is idempotent
         if (code == null) {
-            code = generators.apply(ollirResult.getOllirClass());
+            var builder = new StringBuilder();
+            build(builder);
+            code = builder.toString();
         }
 
         return code;
     }
 
-    private String generateInstruction(Instruction inst) {
-        StringBuilder code = new StringBuilder();
+    /**
+     * Writes the Jasmin code of the class to the given output, e.g. a file, without building it in memory first.
+     */
+    public void build(Appendable out) {
+        binaryLabelCounter = 0;
+        generators.accept(ollirResult.getOllirClass(), new JasminWriter(out));
+    }
 
-        for (var label : currentMethod.getLabels().entrySet()) {
-            if (label.getValue().equals(inst)) {
-                code.append(label.getKey()).append(":").append(NL);
-            }
+    private void generateInstruction(Instruction inst, JasminWriter out) {
+        for (var label : currentLabels.getOrDefault(inst, List.of())) {
+            out.label(label);
         }
 
-        code.append(switch (inst.getInstType()) {
-            case ASSIGN -> generateAssign((AssignInstruction) inst);
+        switch (inst.getInstType()) {
+            case ASSIGN -> generateAssign((AssignInstruction) inst, out);
             case NOPER -> {
                 if (inst instanceof SingleOpInstruction singleOp) {
-                    yield generateSingleOp(singleOp);
+                    generateSingleOp(singleOp, out);
                 } else {
                     throw new NotImplementedException("TODO: " + inst.getClass());
                 }
             }
-            case BINARYOPER -> generateBinaryOp((BinaryOpInstruction) inst);
-            case RETURN -> generateReturn((ReturnInstruction) inst);
-            case CALL -> generateCall((CallInstruction) inst);
-            case PUTFIELD -> generatePutField((PutFieldInstruction) inst);
-            case GETFIELD -> generateGetField((GetFieldInstruction) inst);
-            case UNARYOPER -> generateUnaryOp((UnaryOpInstruction) inst);
-            case BRANCH -> generateCondBranch((CondBranchInstruction) inst);
-            case GOTO -> generateGoto((GotoInstruction) inst);
-        });
-
-        return code.toString();
+            case BINARYOPER -> generateBinaryOp((BinaryOpInstruction) inst, out);
+            case RETURN -> generateReturn((ReturnInstruction) inst, out);
+            case CALL -> generateCall((CallInstruction) inst, false, out);
+            case PUTFIELD -> generatePutField((PutFieldInstruction) inst, out);
+            case GETFIELD -> generateGetField((GetFieldInstruction) inst, out);
+            case UNARYOPER -> generateUnaryOp((UnaryOpInstruction) inst, out);
+            case BRANCH -> generateCondBranch((CondBranchInstruction) inst, out);
+            case GOTO -> generateGoto((GotoInstruction) inst, out);
+        }
     }
 
-    private String generateClassUnit(ClassUnit classUnit) {
-
-        var code = new StringBuilder();
+    private void generateClassUnit(ClassUnit classUnit, JasminWriter out) {
 
         // generate class name
         var className = ollirResult.getOllirClass().getClassName();
         var accessSpec = classUnit.getClassAccessModifier() != AccessModifier.DEFAULT ?
                 classUnit.getClassAccessModifier().name().toLowerCase() + " " :
                 "public ";
-        code.append(".class ").append(accessSpec).append(className).append(NL).append(NL);
+        out.begin().append(".class ").append(accessSpec).append(className).end();
+        out.raw(NL);
 
         // TODO: Hardcoded to Object, needs to be expanded
-        if (classUnit.getSuperClass() == null) {
-            code.append(".super java/lang/Object").append(NL);
-
-            for (var field : classUnit.getFields()) {
-                code.append(".field public ").append(field.getFieldName()).append(" ").append(this.getType(field.getFieldType())).append(NL);
-            }
+        var superClass = classUnit.getSuperClass() == null ? "java/lang/Object" : classUnit.getSuperClass();
+        out.begin().append(".super ").append(superClass).end();
 
-            // generate a single constructor method
-            var defaultConstructor = """
-                    ;default constructor
-                    .method public <init>()V
-                        aload_0
-                        invokespecial java/lang/Object/<init>()V
-                        return
-                    .end method
-                    """;
-            code.append(defaultConstructor);
-        } else {
-            code.append(".super ").append(classUnit.getSuperClass()).append(NL);
-
-            for (var field : classUnit.getFields()) {
-                code.append(".field public ").append(field.getFieldName()).append(" ").append(this.getType(field.getFieldType())).append(NL);
-            }
-
-            var customConstructor = String.format("""
-                    ;default constructor
-                    .method public <init>()V
-                        aload_0
-                        invokespecial %s/<init>()V
-                        return
-                    .end method
-                    """, classUnit.getSuperClass());
-            code.append(customConstructor);
+        for (var field : classUnit.getFields()) {
+            out.begin().append(".field public ").append(field.getFieldName()).append(" ")
+                    .append(this.getType(field.getFieldType())).end();
         }
 
+        // generate a single constructor method
+        out.raw(String.format("""
+                ;default constructor
+                .method public <init>()V
+                    aload_0
+                    invokespecial %s/<init>()V
+                    return
+                .end method
+                """, superClass));
+
         // generate code for all other methods
         for (var method : ollirResult.getOllirClass().getMethods()) {
 
@@ -152,19 +150,19 @@ public class JasminGenerator {
                 continue;
             }
 
-            code.append(generators.apply(method));
+            generators.accept(method, out);
         }
-
-        return code.toString();
     }
 
 
-    private String generateMethod(Method method) {
+    private void generateMethod(Method method, JasminWriter out) {
 
         // set method
         currentMethod = method;
-
-        var code = new StringBuilder();
+        currentLabels = new HashMap<>();
+        for (var label : method.getLabels().entrySet()) {
+            currentLabels.computeIfAbsent(label.getValue(), inst -> new ArrayList<>()).add(label.getKey());
+        }
 
         // calculate modifier
         var modifier = method.getMethodAccessModifier() != AccessModifier.DEFAULT ?
@@ -172,98 +170,45 @@ public class JasminGenerator {
                 "";
 
         var methodName = method.getMethodName();
+        var className = ollirResult.getOllirClass().getClassName();
 
         // TODO: Hardcoded param types and return type, needs to be expanded
-        // code.append("\n.method ").append(modifier).append(methodName).append("(I)I").append(NL);
-
+        out.raw(NL);
+        out.begin().append(".method ").append(modifier);
         if (methodName.equals("main")) {
-            code.append("\n.method ").append(modifier).append("static ").append(methodName).append("(");
-        } else {
-            code.append("\n.method ").append(modifier).append(methodName).append("(");
-        }
-
-        for (var param : method.getParams()) {
-            // TODO: remove if when array types are implemented
-            if (param.getType().toString().equals("STRING[]")) {
-                code.append("[Ljava/lang/String;");
-            } else {
-                code.append(this.getType(param.getType()));
-            }
+            out.append("static ");
         }
+        out.append(methodName).append(BackendUtils.getMethodDescriptor(method, className)).end();
 
-        code.append(")").append(this.getType(method.getReturnType())).append(NL);
-
-        // Add limits
-        int loc_count = currentMethod.getVarTable().size();
-
-        if (!currentMethod.getVarTable().keySet().contains("this") && !currentMethod.isStaticMethod()) {
-            loc_count += 1;
-        }
-        //System.out.println(currentMethod.getVarTable());
+        // Add limits, registers may be shared after register allocation so count up to the highest one
+        int loc_count = (currentMethod.isStaticMethod() ? 0 : 1) + currentMethod.getParams().size();
         for (Descriptor v: currentMethod.getVarTable().values()) {
-            if (v.getScope().toString().equals("FIELD")) {
-                loc_count -= 1;
-            }
-        }
-
-        int stack_size = 0;
-        int stack_count = 0;
-
-        for (Instruction instruction : method.getInstructions()) {
-            if (instruction instanceof AssignInstruction) {
-                var rhs_inst = ((AssignInstruction) instruction).getRhs();
-                if (rhs_inst instanceof CallInstruction) {
-                    CallInstruction callInst = (CallInstruction) rhs_inst;
-                    stack_count += callInst.getArguments().size() + 1;
-                }
-                else if (rhs_inst instanceof BinaryOpInstruction) {
-                    stack_count += 2;
-                }
-                else if (rhs_inst instanceof UnaryOpInstruction) {
-                    stack_count += 1;
-                }
-            }
-            else if (instruction instanceof CallInstruction) {
-                CallInstruction callInst = (CallInstruction) instruction;
-                stack_count += callInst.getArguments().size() + 1;
-            }
-            else if (instruction instanceof GetFieldInstruction || instruction instanceof PutFieldInstruction) {
-                stack_count += 1;
-            }
-            else if (instruction instanceof ReturnInstruction) { // not sure about this one
-                stack_count += 1;
-            }
-
-            stack_size = Math.max(stack_size, stack_count);
-
-            if (instruction instanceof BinaryOpInstruction) { // gets 2 values from the stack and pushes one, so the count actually goes down
-                stack_count -= 1;
-            }
-            else if (instruction instanceof UnaryOpInstruction || instruction instanceof ReturnInstruction) { // just pops from the stack I believe (maybe UnaryOp doesn't, not entirely sure)
-                stack_count -= 1;
+            if (v.getScope() != VarScope.FIELD) {
+                loc_count = Math.max(loc_count, v.getVirtualReg() + 1);
             }
         }
 
-        code.append(TAB).append(".limit stack ").append(98).append(NL);
-        code.append(TAB).append(".limit locals ").append(loc_count).append(NL);
-
+        // The maximum stack size is only known after the whole body is generated
+        methodBody.setLength(0);
+        var bodyOut = new JasminWriter(methodBody).indent();
         for (var inst : method.getInstructions()) {
-            var instCode = StringLines.getLines(generators.apply(inst)).stream()
-                    .collect(Collectors.joining(NL + TAB, TAB, NL));
-
-            code.append(instCode);
+            generators.accept(inst, bodyOut);
         }
 
-        code.append(".end method\n");
+        out.indent();
+        out.begin().append(".limit stack ").append(bodyOut.getMaxStackDepth()).end();
+        out.begin().append(".limit locals ").append(loc_count).end();
+        out.dedent();
+        out.raw(methodBody);
+
+        out.line(".end method");
 
         // unset method
         currentMethod = null;
-
-        return code.toString();
+        currentLabels = null;
     }
 
-    private String generateAssign(AssignInstruction assign) {
-        var code = new StringBuilder();
+    private void generateAssign(AssignInstruction assign, JasminWriter out) {
 
         // store value in the stack in destination
         var lhs = assign.getDest();
@@ -272,291 +217,248 @@ public class JasminGenerator {
             throw new NotImplementedException(lhs.getClass());
         }
 
-        var rhs = generators.apply(assign.getRhs());
-        if (rhs.endsWith("pop" + NL)) {
-            rhs = rhs.substring(0, rhs.length() - 4);
+        var increment = BackendUtils.getIncrement(operand, assign.getRhs());
+        if (increment != null) {
+            out.begin().append("iinc ").append(BackendUtils.getRegister(currentMethod, operand))
+                    .append(" ").append(increment).end(0);
+            return;
         }
 
         if (lhs instanceof ArrayOperand) {
-            code.append(this.store(operand));
-            code.append(rhs);
-            code.append("iastore").append(NL);
+            this.store(operand, out);
+            generateValue(assign.getRhs(), out);
+            out.line("iastore", -3);
         } else {
-            code.append(rhs);
-            code.append(this.store(operand));
+            generateValue(assign.getRhs(), out);
+            this.store(operand, out);
         }
+    }
 
-        return code.toString();
+    /**
+     * Leaves the result of the instruction on the stack, even if it is a call (which pops it otherwise).
+     */
+    private void generateValue(Instruction inst, JasminWriter out) {
+        if (inst instanceof CallInstruction callInst) {
+            generateCall(callInst, true, out);
+        } else {
+            generators.accept(inst, out);
+        }
     }
 
-    private String generateSingleOp(SingleOpInstruction singleOp) {
-        return generators.apply(singleOp.getSingleOperand());
+    private void generateSingleOp(SingleOpInstruction singleOp, JasminWriter out) {
+        generators.accept(singleOp.getSingleOperand(), out);
     }
 
-    private String generateLiteral(LiteralElement literal) {
-        return "ldc " + literal.getLiteral() + NL;
+    private void generateLiteral(LiteralElement literal, JasminWriter out) {
+        this.loadConstant(literal.getLiteral(), out);
     }
 
     // TODO: Check this out, it might be wrong but previous version is a no-go for sure
-    private String generateOperand(Operand operand) {
+    private void generateOperand(Operand operand, JasminWriter out) {
         // Same as `this.store()` but for loading values
-        return switch (operand.getType().getTypeOfElement()) {
-            case STRING, OBJECTREF, ARRAYREF -> "aload " + currentMethod.getVarTable().get(operand.getName()).getVirtualReg() + NL;
-            case THIS -> "aload_0" + NL;
+        switch (operand.getType().getTypeOfElement()) {
+            case STRING, OBJECTREF, ARRAYREF -> this.local("aload", operand, out);
+            case THIS -> out.line("aload_0", 1);
             case INT32, BOOLEAN -> {
-                if (operand instanceof ArrayOperand) {
-                    yield "aload " + currentMethod.getVarTable().get(operand.getName()).getVirtualReg() + NL +
-                            generators.apply(((ArrayOperand) operand).getIndexOperands().get(0)) +
-                            "iaload" + NL;
+                if (operand instanceof ArrayOperand arrayOperand) {
+                    this.local("aload", operand, out);
+                    generators.accept(arrayOperand.getIndexOperands().get(0), out);
+                    out.line("iaload", -1);
                 } else {
-                    yield "iload " + currentMethod.getVarTable().get(operand.getName()).getVirtualReg() + NL;
+                    this.local("iload", operand, out);
                 }
             }
-            default -> "";
-        };
+            default -> {
+            }
+        }
     }
 
-    private String generateBinaryOp(BinaryOpInstruction binaryOp) {
-        var code = new StringBuilder();
+    private void generateBinaryOp(BinaryOpInstruction binaryOp, JasminWriter out) {
 
         // load values on the left and on the right
-        String lhs = generators.apply(binaryOp.getLeftOperand());
-        String rhs = generators.apply(binaryOp.getRightOperand());
+        generators.accept(binaryOp.getLeftOperand(), out);
+        generators.accept(binaryOp.getRightOperand(), out);
 
         // apply operation
         var opType = binaryOp.getOperation().getOpType();
 
         switch (opType) {
-            case ADD, MUL, DIV, SUB, LTH -> code.append(lhs).append(rhs);
-            case GTE -> code.append(rhs).append(lhs);
-        }
-
-        var op = switch (opType) {
-            case ADD -> "iadd";
-            case MUL -> "imul";
-            case DIV -> "idiv";
-            case SUB -> "isub";
-            case LTH, GTE -> {
-                String label = binaryOp.getOperation().getOpType() == OperationType.LTH ? "cmp_lt_" : "cmp_ge_";
-
-                String opCode = "isub" + NL
-                        + "iflt " + label + binaryLabelCounter + "_true" + NL
-                        + "iconst_0" + NL
-                        + "goto " + label + binaryLabelCounter + "_end" + NL
-                        + label + binaryLabelCounter + "_true:" + NL
-                        + "iconst_1" + NL
-                        + label + binaryLabelCounter + "_end:" + NL;
+            case ADD -> out.line("iadd", -1);
+            case MUL -> out.line("imul", -1);
+            case DIV -> out.line("idiv", -1);
+            case SUB -> out.line("isub", -1);
+            case LTH, GTH, LTE, GTE, EQ, NEQ -> {
+                // Only reached when the boolean is stored, conditions are fused with their branch
+                String comparison = BackendUtils.getComparison(opType);
+                String label = "cmp_" + comparison + "_" + binaryLabelCounter;
+
+                out.begin().append("if_icmp").append(comparison).append(" ").append(label).append("_true").end(-2);
+                int falseDepth = out.getStackDepth();
+                out.line("iconst_0", 1);
+                out.begin().append("goto ").append(label).append("_end").end(0);
+                out.label(label + "_true");
+                out.setStackDepth(falseDepth);
+                out.line("iconst_1", 1);
+                out.label(label + "_end");
 
                 this.binaryLabelCounter++;
-                yield opCode;
             }
             case AND -> throw new RuntimeException("Code should not reach here");
             default -> throw new NotImplementedException(binaryOp.getOperation().getOpType());
-        };
-
-        code.append(op).append(NL);
-
-        return code.toString();
+        }
     }
 
-    private String generateReturn(ReturnInstruction returnInst) {
-        var code = new StringBuilder();
+    private void generateReturn(ReturnInstruction returnInst, JasminWriter out) {
         // TODO: Hardcoded to int return type, needs to be expanded
 
         if (returnInst.getOperand() != null) {
-            code.append(generators.apply(returnInst.getOperand()));
+            generators.accept(returnInst.getOperand(), out);
         }
 
-        if (returnInst.getReturnType().toString().equals("INT32") || returnInst.getReturnType().toString().equals("BOOLEAN")) {
-            code.append("ireturn").append(NL);
+        if (BackendUtils.returnsInt(returnInst)) {
+            out.line("ireturn", -1);
         } else {
-            code.append("return").append(NL);
+            out.line("return", 0);
         }
-
-        return code.toString();
     }
 
-    private String generateCall(CallInstruction callInst) {
-        var code = new StringBuilder();
+    /**
+     * @param keepResult if the value returned by the call stays on the stack, otherwise it is popped
+     */
+    private void generateCall(CallInstruction callInst, boolean keepResult, JasminWriter out) {
 
         if (callInst.getInvocationType().toString().equals("NEW")) {
             if (callInst.getReturnType().getTypeOfElement() == ElementType.OBJECTREF) {
-                code.append("new ");
-                // TODO - not exactly sure how to proceed from here, needs work
+                // The object is stored in a variable and then initialised through it by an invokespecial of its own
                 for (var element : callInst.getOperands()) {
-                    code.append(((Operand) element).getName()).append(NL);
+                    out.begin().append("new ").append(((Operand) element).getName()).end(1);
                 }
-                code.append("dup").append(NL);
             } else if (callInst.getReturnType().getTypeOfElement() == ElementType.ARRAYREF) {
-                code.append(generators.apply(callInst.getArguments().get(0)))
-                        .append("newarray int").append(NL);
+                generators.accept(callInst.getArguments().get(0), out);
+                out.line("newarray int", 0);
             } else {
                 throw new NotImplementedException(callInst.getReturnType().getTypeOfElement());
             }
         } else if (callInst.getInvocationType().toString().equals("invokespecial")) {
-            code.append(invokeSpecial(callInst));
+            invokeSpecial(callInst, out);
         } else if (callInst.getInvocationType().toString().equals("invokestatic")) {
-            code.append(invokeStatic(callInst));
+            invokeStatic(callInst, out);
         } else if (callInst.getInvocationType().toString().equals("invokevirtual")) {
-            code.append(invokeVirtual(callInst));
+            invokeVirtual(callInst, out);
         } else if (callInst.getInvocationType().toString().equals("arraylength")) {
-            code.append(arrayLength(callInst));
+            arrayLength(callInst, out);
         } else {
             throw new NotImplementedException(callInst.getInvocationType());
         }
 
-        if (callInst.getReturnType().getTypeOfElement() != ElementType.VOID) {
-            code.append("pop").append(NL);
+        if (!keepResult && callInst.getReturnType().getTypeOfElement() != ElementType.VOID) {
+            out.line("pop", -1);
         }
-
-        return code.toString();
     }
 
-    private String invokeSpecial(CallInstruction callInst) {
-        var code = new StringBuilder();
+    private void invokeSpecial(CallInstruction callInst, JasminWriter out) {
 
-        code.append(generators.apply(callInst.getOperands().get(0)));
-        code.append("invokespecial ").append(ollirResult.getOllirClass().getClassName()).append("/<init>");
-        code.append("(");
-
-        for (Element el : callInst.getArguments()) {
-            switch (el.getType().getTypeOfElement()) {
-                case INT32 -> code.append("I");
-                case BOOLEAN -> code.append("B");
-                case VOID -> code.append("V");
-                case STRING -> code.append("Ljava/lang/String;");
-            }
-        }
-
-        code.append(")").append(this.getType(callInst.getReturnType())).append(NL);
+        var className = ollirResult.getOllirClass().getClassName();
 
-        return code.toString();
+        generators.accept(callInst.getOperands().get(0), out);
+        out.begin().append("invokespecial ").append(BackendUtils.getOwner(callInst, className)).append("/<init>")
+                .append(BackendUtils.getCallDescriptor(callInst, className)).end(getStackEffect(callInst, true));
     }
 
-    private String invokeStatic(CallInstruction callInst) {
-        var code = new StringBuilder();
+    private void invokeStatic(CallInstruction callInst, JasminWriter out) {
 
         var callerName = ((Operand) callInst.getOperands().get(0)).getName();
-        var methodName = ((LiteralElement) callInst.getMethodName()).getLiteral().replace("\"", "");
-
-        boolean checkImport = currentMethod.getOllirClass().getImports().stream().anyMatch(
-                imported -> imported.equals(callerName) || imported.equals(methodName)
-        );
-
-        boolean checkSuper = currentMethod.getOllirClass().getSuperClass() != null && currentMethod.getOllirClass().getSuperClass().equals(callerName);
 
-        if (!(checkImport || checkSuper)) {
+        if (!BackendUtils.isClassReference(callInst, currentMethod.getOllirClass())) {
             // Load caller
-            code.append(generators.apply(callInst.getOperands().get(0)));
+            generators.accept(callInst.getOperands().get(0), out);
         }
 
         // remove first two operands, since they are the caller and the method name
         for (var element : callInst.getOperands().subList(2, callInst.getOperands().size())) {
-            code.append(generators.apply(element));
-        }
-
-        code.append("invokestatic ").append(callerName).append("/").append(methodName).append("(");
-
-        for (Element element : callInst.getArguments()) {
-            code.append(this.getType(element.getType()));
+            generators.accept(element, out);
         }
 
-        code.append(")").append(this.getType(callInst.getReturnType())).append(NL);
-        return code.toString();
+        out.begin().append("invokestatic ").append(callerName).append("/")
+                .append(BackendUtils.getMethodName(callInst))
+                .append(BackendUtils.getCallDescriptor(callInst, ollirResult.getOllirClass().getClassName()))
+                .end(getStackEffect(callInst, false));
     }
 
-    private String invokeVirtual(CallInstruction callInst) {
-        var code = new StringBuilder();
+    private void invokeVirtual(CallInstruction callInst, JasminWriter out) {
 
         // Load all operands (TODO: not sure about this code)
         // Load the caller
-        code.append(generators.apply(callInst.getOperands().get(0)));
+        generators.accept(callInst.getOperands().get(0), out);
 
         // remove first two operands, since they are the caller and the method name
         for (var element : callInst.getOperands().subList(2, callInst.getOperands().size())) {
-            code.append(generators.apply(element));
+            generators.accept(element, out);
         }
 
-        var callerName = ((Operand) callInst.getOperands().get(0)).getName().equals("this") ?
-                ollirResult.getOllirClass().getClassName() :
-                ((ClassType) callInst.getOperands().get(0).getType()).getName();
-        var methodName = ((LiteralElement) callInst.getMethodName()).getLiteral().replace("\"", "");
-        code.append("invokevirtual ").append(callerName).append("/").append(methodName).append("(");
-
-        for (Element element : callInst.getArguments()) {
-            code.append(this.getType(element.getType()));
-        }
-
-        code.append(")").append(this.getType(callInst.getReturnType())).append(NL);
-
-        return code.toString();
+        var className = ollirResult.getOllirClass().getClassName();
+        out.begin().append("invokevirtual ").append(BackendUtils.getOwner(callInst, className)).append("/")
+                .append(BackendUtils.getMethodName(callInst))
+                .append(BackendUtils.getCallDescriptor(callInst, className)).end(getStackEffect(callInst, true));
     }
 
-    private String arrayLength(CallInstruction callInst) {
-        var code = new StringBuilder();
-
-        code.append(generators.apply(callInst.getOperands().get(0)));
-        code.append("arraylength").append(NL);
-
-        return code.toString();
+    private void arrayLength(CallInstruction callInst, JasminWriter out) {
+        generators.accept(callInst.getOperands().get(0), out);
+        out.line("arraylength", 0);
     }
 
-    private String generatePutField(PutFieldInstruction putField) {
-        var code = new StringBuilder();
+    private void generatePutField(PutFieldInstruction putField, JasminWriter out) {
 
         Element first = putField.getOperands().get(0);
         Element second = putField.getOperands().get(1);
         Element third = putField.getOperands().get(2);
 
-        code.append(generators.apply(first));
-        code.append(generators.apply(third));
-        code.append("putfield ").append(ollirResult.getOllirClass().getClassName()).append("/")
+        generators.accept(first, out);
+        generators.accept(third, out);
+        out.begin().append("putfield ").append(ollirResult.getOllirClass().getClassName()).append("/")
                 .append(((Operand) second).getName()).append(" ")
-                .append(this.getType(second.getType())).append(NL);
-
-        return code.toString();
+                .append(this.getType(second.getType())).end(-2);
     }
 
-    private String generateGetField(GetFieldInstruction getField) {
-        var code = new StringBuilder();
+    private void generateGetField(GetFieldInstruction getField, JasminWriter out) {
 
         Element first = getField.getOperands().get(0);
         Element second = getField.getOperands().get(1);
 
-        code.append(generators.apply(first));
-        code.append("getfield ").append(ollirResult.getOllirClass().getClassName()).append("/")
+        generators.accept(first, out);
+        out.begin().append("getfield ").append(ollirResult.getOllirClass().getClassName()).append("/")
                 .append(((Operand) second).getName()).append(" ")
-                .append(this.getType(second.getType())).append(NL);
-
-        return code.toString();
+                .append(this.getType(second.getType())).end(0);
     }
 
-    private String generateUnaryOp(UnaryOpInstruction unaryOp) {
-        var code = new StringBuilder();
+    private void generateUnaryOp(UnaryOpInstruction unaryOp, JasminWriter out) {
 
         // load value
-        code.append(generators.apply(unaryOp.getOperand()));
+        generators.accept(unaryOp.getOperand(), out);
 
         // apply operation
         if (Objects.requireNonNull(unaryOp.getOperation().getOpType()) == OperationType.NOTB) {
-            code.append("iconst_1").append(NL).append("ixor").append(NL);
+            out.line("iconst_1", 1);
+            out.line("ixor", -1);
         } else {
             throw new NotImplementedException(unaryOp.getOperation().getOpType());
         }
-
-        return code.toString();
     }
 
-    private String generateCondBranch(CondBranchInstruction codeBranch) {
-        StringBuilder code = new StringBuilder();
-        code.append(generators.apply(codeBranch.getCondition()))
-                .append("ifne ").append(codeBranch.getLabel()).append(NL);
+    private void generateCondBranch(CondBranchInstruction codeBranch, JasminWriter out) {
+        var branch = BackendUtils.getBranch(codeBranch.getCondition());
 
-        return code.toString();
+        for (var operand : branch.operands()) {
+            generators.accept(operand, out);
+        }
+
+        // The jump pops the values it compares
+        out.begin().append(branch.instruction()).append(" ").append(codeBranch.getLabel())
+                .end(-branch.operands().size());
     }
 
-    private String generateGoto(GotoInstruction gotoInst) {
-        return "goto " + gotoInst.getLabel() + NL;
+    private void generateGoto(GotoInstruction gotoInst, JasminWriter out) {
+        out.begin().append("goto ").append(gotoInst.getLabel()).end(0);
     }
 
     // -----------------------------------------------------------------
@@ -569,46 +471,63 @@ public class JasminGenerator {
      * @return Jasmin type
      */
     private String getType(Type type) {
-        switch (type.getTypeOfElement()) {
-            case INT32:
-                return "I";
-            case BOOLEAN:
-                return "Z";
-            case VOID:
-                return "V";
-            case STRING:
-                return "Ljava/lang/String;";
-            case CLASS, THIS, OBJECTREF:
-                var className = ((ClassType) type).getName();
-                if (className.equals("this")) {
-                    return "L" + ollirResult.getOllirClass().getClassName() + ";";
-                }
+        return BackendUtils.getDescriptor(type, ollirResult.getOllirClass().getClassName());
+    }
+
+    /**
+     * Loads a constant with the instruction {@link BackendUtils#getConstantInstruction} selects.
+     * @param value Literal value
+     * @param out Where the code is written
+     */
+    private void loadConstant(String value, JasminWriter out) {
+        var instruction = BackendUtils.getConstantInstruction(value);
 
-                return "L" + className + ";";
-            case ARRAYREF:
-                return "[I";
-            default:
-                throw new NotImplementedException(type.getTypeOfElement());
+        if (instruction.startsWith("iconst")) {
+            out.line(instruction, 1);
+        } else {
+            out.begin().append(instruction).append(" ").append(value).end(1);
         }
     }
 
     /**
      * Stores the value of an operand in the stack.
      * @param op Operand
-     * @return Jasmin code
+     * @param out Where the code is written
      */
-    private String store(Operand op) {
-        return switch (op.getType().getTypeOfElement()) {
-            case STRING, CLASS, OBJECTREF, ARRAYREF -> "astore " + currentMethod.getVarTable().get(op.getName()).getVirtualReg() + NL;
-            case THIS -> "astore_0" + NL;
+    private void store(Operand op, JasminWriter out) {
+        switch (op.getType().getTypeOfElement()) {
+            case STRING, CLASS, OBJECTREF, ARRAYREF -> this.local("astore", op, out);
+            case THIS -> out.line("astore_0", -1);
             default -> {
                 if (op instanceof ArrayOperand arrayOperand) {
-                    yield "aload " + currentMethod.getVarTable().get(op.getName()).getVirtualReg() + NL +
-                            generators.apply(((ArrayOperand) op).getIndexOperands().get(0));
+                    this.local("aload", op, out);
+                    generators.accept(arrayOperand.getIndexOperands().get(0), out);
+                } else {
+                    this.local("istore", op, out);
                 }
-
-                yield "istore " + currentMethod.getVarTable().get(op.getName()).getVirtualReg() + NL;
             }
-        };
+        }
+    }
+
+    /**
+     * Loads or stores a local variable, with the short form of the instruction for registers 0 to 3.
+     * @param opcode Instruction, e.g. iload
+     * @param op Operand
+     * @param out Where the code is written
+     */
+    private void local(String opcode, Operand op, JasminWriter out) {
+        int reg = BackendUtils.getRegister(currentMethod, op);
+
+        out.begin().append(opcode).append(reg <= 3 ? "_" : " ").append(reg).end(opcode.endsWith("load") ? 1 : -1);
+    }
+
+    /**
+     * @param hasReceiver if the call pops the object it is called on, i.e. it is not static
+     * @return how many values the call pushes onto the operand stack, negative if it pops more than it pushes
+     */
+    private static int getStackEffect(CallInstruction callInst, boolean hasReceiver) {
+        int result = callInst.getReturnType().getTypeOfElement() == ElementType.VOID ? 0 : 1;
+
+        return result - callInst.getArguments().size() - (hasReceiver ? 1 : 0);
     }
 }
@@ -0,0 +1,134 @@
+package pt.up.fe.comp2024.backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes Jasmin code to an {@link Appendable} a line at a time, indenting each line as it is written.
+ * <p>
+ * A line is either written whole with {@link #line(CharSequence)}, or in parts with {@link #begin()}, {@link #append}
+ * and {@link #end()}, so instructions can be written without building a String for each of them first.
+ * <p>
+ * Instructions are ended with the number of values they push onto the operand stack, negative if they pop them, so
+ * the writer knows the maximum depth of the stack once the code of a method is written. The depth is followed in the
+ * order the instructions are written, so code that jumps to a label with a different depth than the instruction
+ * before it has to set it with {@link #setStackDepth(int)}.
+ */
+public class JasminWriter {
+
+    private static final String NL = "\n";
+    private static final String TAB = "   ";
+
+    private final Appendable out;
+    private int indentation;
+
+    // Depth of the operand stack after the instructions written so far, and the maximum it reached
+    private int stackDepth;
+    private int maxStackDepth;
+
+    public JasminWriter(Appendable out) {
+        this.out = out;
+        this.indentation = 0;
+        this.stackDepth = 0;
+        this.maxStackDepth = 0;
+    }
+
+    /**
+     * Indents the lines written from now on one level more, e.g. inside a method.
+     */
+    public JasminWriter indent() {
+        indentation++;
+        return this;
+    }
+
+    public JasminWriter dedent() {
+        indentation--;
+        return this;
+    }
+
+    /**
+     * Starts a new line, at the current indentation.
+     */
+    public JasminWriter begin() {
+        for (int i = 0; i < indentation; i++) {
+            write(TAB);
+        }
+
+        return this;
+    }
+
+    public JasminWriter append(CharSequence text) {
+        write(text);
+        return this;
+    }
+
+    public JasminWriter append(int value) {
+        write(Integer.toString(value));
+        return this;
+    }
+
+    /**
+     * Ends the current line.
+     */
+    public void end() {
+        write(NL);
+    }
+
+    /**
+     * Ends the line of an instruction, which pushes that many values onto the operand stack, or pops them if negative.
+     */
+    public void end(int stackEffect) {
+        end();
+        setStackDepth(stackDepth + stackEffect);
+    }
+
+    public void line(CharSequence text) {
+        begin().append(text).end();
+    }
+
+    /**
+     * Writes the line of an instruction, which pushes that many values onto the operand stack, or pops them if
+     * negative.
+     */
+    public void line(CharSequence text, int stackEffect) {
+        begin().append(text).end(stackEffect);
+    }
+
+    public void label(String label) {
+        begin().append(label).append(":").end();
+    }
+
+    public int getStackDepth() {
+        return stackDepth;
+    }
+
+    /**
+     * Sets the depth of the operand stack before the next instruction, e.g. at a label only reached by a jump.
+     */
+    public void setStackDepth(int stackDepth) {
+        this.stackDepth = stackDepth;
+        maxStackDepth = Math.max(maxStackDepth, stackDepth);
+    }
+
+    /**
+     * @return the maximum depth of the operand stack after any of the instructions written
+     */
+    public int getMaxStackDepth() {
+        return maxStackDepth;
+    }
+
+    /**
+     * Writes the text as it is, without indenting it.
+     */
+    public void raw(CharSequence text) {
+        write(text);
+    }
+
+    private void write(CharSequence text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package pt.up.fe.comp2024.daemon;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.analysis.IncrementalJmmAnalysis;
+import pt.up.fe.comp2024.CompilationCache;
+import pt.up.fe.comp2024.CompilationPipeline;
+import pt.up.fe.comp2024.CompilationResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-running compiler that keeps a warmed-up {@link CompilationPipeline} and serves compile requests on a
+ * localhost port.
+ * <p>
+ * Each connection carries one {@link DaemonRequest} line and gets back one {@link CompilationResult} line, both in
+ * JSON. Requests are handled by '-j' worker threads. Only the options that change the compiled code are taken from a
+ * request, files are read and written by the client.
+ * <p>
+ * The daemon remembers the semantic analysis of the files it compiled last, so compiling a file again after an edit
+ * only analyses the methods that changed (see {@link IncrementalJmmAnalysis}).
+ */
+public class CompilerDaemon {
+
+    // Files whose analysis is remembered, the least recently compiled is forgotten first
+    private static final int MAX_ANALYSES = 256;
+
+    // A client that does not send its request in time is dropped, so it cannot hold a worker
+    private static final int REQUEST_TIMEOUT_MILLIS = 10_000;
+
+    private final int port;
+    private final CompilationPipeline pipeline;
+    private final ExecutorService workers;
+    private final Map<String, IncrementalJmmAnalysis> analyses;
+
+    private volatile boolean running;
+    private volatile ServerSocket serverSocket;
+    private final CountDownLatch listening = new CountDownLatch(1);
+
+    public CompilerDaemon(Map<String, String> config) {
+        this.port = CompilerConfig.getPort(config).orElse(CompilerConfig.DEFAULT_PORT);
+        this.pipeline = CompilationPipeline.fromConfig(config);
+        this.workers = Executors.newFixedThreadPool(CompilerConfig.getJobs(config));
+        this.analyses = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IncrementalJmmAnalysis> eldest) {
+                return size() > MAX_ANALYSES;
+            }
+        });
+    }
+
+    /**
+     * Accepts requests until a shutdown request arrives.
+     */
+    public void serve() {
+        try (var server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            serverSocket = server;
+            running = true;
+            listening.countDown();
+            System.out.println("Compiler daemon listening on localhost:" + server.getLocalPort());
+
+            while (running) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (IOException e) {
+                    // Socket is closed by a shutdown request
+                    if (!running) {
+                        break;
+                    }
+                    throw e;
+                }
+
+                workers.submit(() -> handle(socket));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not run compiler daemon on port " + port, e);
+        } finally {
+            running = false;
+            listening.countDown();
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Waits until {@link #serve()} accepts connections.
+     *
+     * @return the port the daemon listens on, chosen by the system if the daemon was given port 0
+     */
+    public int awaitListening() throws InterruptedException {
+        listening.await();
+
+        if (!running) {
+            throw new IllegalStateException("Compiler daemon is not running");
+        }
+
+        return serverSocket.getLocalPort();
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             var out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+
+            socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+
+            var line = in.readLine();
+            if (line == null) {
+                return;
+            }
+
+            var request = DaemonRequest.fromJson(line);
+            switch (request.getCommand()) {
+                case DaemonRequest.COMPILE -> reply(out, compile(request));
+                case DaemonRequest.SHUTDOWN -> {
+                    reply(out, CompilationResult.failed(List.of()));
+                    shutdown();
+                }
+                default -> reply(out, CompilationResult.failed(List.of(Report.newError(Stage.OTHER, -1, -1,
+                        "Unknown daemon command '" + request.getCommand() + "'", null))));
+            }
+        } catch (IOException | RuntimeException e) {
+            // A broken connection only affects its own client
+            System.err.println("Compiler daemon: could not handle request: " + e.getMessage());
+        }
+    }
+
+    private CompilationResult compile(DaemonRequest request) {
+        var source = new File(request.getSource());
+        if (!source.isFile()) {
+            return CompilationResult.failed(List.of(Report.newError(Stage.OTHER, -1, -1,
+                    "Could not find input file '" + source + "'", null)));
+        }
+
+        var analysis = analyses.computeIfAbsent(source.getAbsolutePath(), path -> new IncrementalJmmAnalysis());
+
+        // The analysis is not thread-safe, so requests for the same file are compiled one at a time
+        try {
+            synchronized (analysis) {
+                return pipeline.compile(SpecsIo.read(source), CompilerConfig.getCodeOptions(request.getConfig()),
+                        analysis);
+            }
+        } catch (RuntimeException e) {
+            return CompilationResult.failed(List.of(
+                    Report.newError(Stage.OTHER, -1, -1, "Exception during compilation", e)));
+        }
+    }
+
+    private void reply(Writer out, CompilationResult result) throws IOException {
+        out.write(result.toJson());
+        out.write("\n");
+        out.flush();
+    }
+
+    private void shutdown() throws IOException {
+        running = false;
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,64 @@
+package pt.up.fe.comp2024.daemon;
+
+import pt.up.fe.comp2024.CompilationResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Thin client of the {@link CompilerDaemon}.
+ */
+public class DaemonClient {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 200;
+
+    private final int port;
+
+    public DaemonClient(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Asks the daemon to compile the given file.
+     *
+     * @return the result of the compilation, or empty if there is no daemon listening, in which case the caller
+     * should compile in-process
+     */
+    public Optional<CompilationResult> compile(String source, Map<String, String> config) {
+        return send(DaemonRequest.compile(source, config));
+    }
+
+    public boolean shutdown() {
+        return send(DaemonRequest.shutdown()).isPresent();
+    }
+
+    private Optional<CompilationResult> send(DaemonRequest request) {
+        try (var socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MILLIS);
+
+            var out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            out.write(request.toJson());
+            out.write("\n");
+            out.flush();
+
+            var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            var line = in.readLine();
+            if (line == null) {
+                return Optional.empty();
+            }
+
+            return Optional.of(CompilationResult.fromJson(line));
+        } catch (IOException e) {
+            // No daemon running (or it went away), fall back to in-process compilation
+            return Optional.empty();
+        }
+    }
+}
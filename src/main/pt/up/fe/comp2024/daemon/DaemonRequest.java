@@ -0,0 +1,54 @@
+package pt.up.fe.comp2024.daemon;
+
+import com.google.gson.Gson;
+
+import java.util.Map;
+
+/**
+ * A request sent to the {@link CompilerDaemon}, as one line of JSON per connection.
+ */
+public class DaemonRequest {
+
+    public static final String COMPILE = "compile";
+    public static final String SHUTDOWN = "shutdown";
+
+    private String command;
+    private String source;
+    private Map<String, String> config;
+
+    public static DaemonRequest compile(String source, Map<String, String> config) {
+        var request = new DaemonRequest();
+        request.command = COMPILE;
+        request.source = source;
+        request.config = config;
+
+        return request;
+    }
+
+    public static DaemonRequest shutdown() {
+        var request = new DaemonRequest();
+        request.command = SHUTDOWN;
+
+        return request;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Map<String, String> getConfig() {
+        return config;
+    }
+
+    public String toJson() {
+        return new Gson().toJson(this);
+    }
+
+    public static DaemonRequest fromJson(String json) {
+        return new Gson().fromJson(json, DaemonRequest.class);
+    }
+}
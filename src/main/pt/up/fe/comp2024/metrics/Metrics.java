@@ -0,0 +1,70 @@
+package pt.up.fe.comp2024.metrics;
+
+import java.util.function.Supplier;
+
+/**
+ * Measures the stages of the compilation running on the current thread.
+ * <p>
+ * Collecting is only on between {@link #startUnit(String)} and closing the returned {@link UnitMetrics}, so stages
+ * can always call {@link #measure(String, Supplier)} and it costs nothing when no one asked for metrics. Stage
+ * names are dotted by nesting, e.g. 'semantic.symbolTable' is measured inside 'semantic'.
+ */
+public class Metrics {
+
+    private static final ThreadLocal<UnitMetrics> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Starts collecting the metrics of a unit compiled by the current thread.
+     */
+    public static UnitMetrics startUnit(String unit) {
+        var unitMetrics = new UnitMetrics(unit);
+        CURRENT.set(unitMetrics);
+
+        return unitMetrics;
+    }
+
+    static void stopUnit(UnitMetrics unitMetrics) {
+        if (CURRENT.get() == unitMetrics) {
+            CURRENT.remove();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Runs the given stage, measuring it if metrics are being collected on this thread.
+     */
+    public static <T> T measure(String stage, Supplier<T> action) {
+        var unitMetrics = CURRENT.get();
+        if (unitMetrics == null) {
+            return action.get();
+        }
+
+        unitMetrics.begin(stage);
+        var start = Sample.now();
+        try {
+            return action.get();
+        } finally {
+            unitMetrics.add(stage, Sample.now().since(start));
+        }
+    }
+
+    public static void measure(String stage, Runnable action) {
+        measure(stage, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Adds a sample measured elsewhere to the given stage, for stages that are not a single call.
+     */
+    public static void record(String stage, Sample sample) {
+        var unitMetrics = CURRENT.get();
+        if (unitMetrics != null) {
+            unitMetrics.add(stage, sample);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package pt.up.fe.comp2024.metrics;
+
+import com.google.gson.GsonBuilder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The metrics of every unit compiled by one run of the compiler, written as JSON with '-t'.
+ * <p>
+ * Times are in nanoseconds and allocations in bytes, all for the thread that compiled the unit. A unit found in the
+ * compilation cache only has the 'cache' stage.
+ */
+public class MetricsReport {
+
+    private final List<UnitMetrics> units;
+
+    public MetricsReport(List<UnitMetrics> units) {
+        this.units = units;
+    }
+
+    public String toJson() {
+        var serialized = new Serialized();
+        serialized.units = new ArrayList<>();
+
+        for (var unit : units) {
+            var serializedUnit = new SerializedUnit();
+            serializedUnit.unit = unit.getUnit();
+            serializedUnit.total = unit.getTotal();
+            serializedUnit.stages = new ArrayList<>();
+
+            for (var stage : unit.getStages().entrySet()) {
+                serializedUnit.stages.add(new SerializedStage(stage.getKey(), stage.getValue()));
+            }
+
+            serialized.units.add(serializedUnit);
+        }
+
+        return new GsonBuilder().setPrettyPrinting().create().toJson(serialized);
+    }
+
+    public void write(File file) {
+        var parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            SpecsIo.mkdir(parent);
+        }
+
+        SpecsIo.write(file, toJson());
+    }
+
+    private static class Serialized {
+        List<SerializedUnit> units;
+    }
+
+    private static class SerializedUnit {
+        String unit;
+        Sample total;
+        List<SerializedStage> stages;
+    }
+
+    private static class SerializedStage {
+        String stage;
+        long wallNanos;
+        long cpuNanos;
+        long allocatedBytes;
+
+        SerializedStage(String stage, Sample sample) {
+            this.stage = stage;
+            this.wallNanos = sample.wallNanos();
+            this.cpuNanos = sample.cpuNanos();
+            this.allocatedBytes = sample.allocatedBytes();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024.metrics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Wall time, CPU time and allocated bytes of the current thread, either as counters at some instant or as the
+ * difference between two instants. Values the JVM cannot measure are -1.
+ */
+public record Sample(long wallNanos, long cpuNanos, long allocatedBytes) {
+
+    public static final Sample ZERO = new Sample(0, 0, 0);
+
+    private static final com.sun.management.ThreadMXBean THREADS = getThreadBean();
+
+    /**
+     * @return the counters of the current thread now
+     */
+    public static Sample now() {
+        long cpuNanos = THREADS != null && THREADS.isThreadCpuTimeEnabled() ? THREADS.getCurrentThreadCpuTime() : -1;
+        long allocatedBytes = THREADS != null && THREADS.isThreadAllocatedMemoryEnabled()
+                ? THREADS.getCurrentThreadAllocatedBytes()
+                : -1;
+
+        return new Sample(System.nanoTime(), cpuNanos, allocatedBytes);
+    }
+
+    /**
+     * @return what was spent between the given sample and this one
+     */
+    public Sample since(Sample start) {
+        return new Sample(wallNanos - start.wallNanos,
+                unknownOr(cpuNanos, start.cpuNanos, cpuNanos - start.cpuNanos),
+                unknownOr(allocatedBytes, start.allocatedBytes, allocatedBytes - start.allocatedBytes));
+    }
+
+    public Sample plus(Sample other) {
+        return new Sample(wallNanos + other.wallNanos,
+                unknownOr(cpuNanos, other.cpuNanos, cpuNanos + other.cpuNanos),
+                unknownOr(allocatedBytes, other.allocatedBytes, allocatedBytes + other.allocatedBytes));
+    }
+
+    private static long unknownOr(long first, long second, long value) {
+        return first < 0 || second < 0 ? -1 : value;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        // Allocation counters are only in the HotSpot extension of the bean
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)) {
+            return null;
+        }
+
+        try {
+            if (threads.isCurrentThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+                threads.setThreadCpuTimeEnabled(true);
+            }
+            if (threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            // Whatever could not be enabled is reported as unknown
+        }
+
+        return threads;
+    }
+}
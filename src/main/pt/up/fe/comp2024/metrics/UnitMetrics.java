@@ -0,0 +1,58 @@
+package pt.up.fe.comp2024.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What compiling one unit cost, in total and per stage.
+ * <p>
+ * Stages are kept in the order they started, so a stage is listed before the sub-stages measured inside it. A stage
+ * measured more than once (e.g. an analysis pass that runs on every node) has its samples added up. Only used by
+ * the thread compiling the unit, closing it stops collecting on that thread.
+ */
+public class UnitMetrics implements AutoCloseable {
+
+    private final String unit;
+    private final Sample start;
+    private final Map<String, Sample> stages;
+    private Sample total;
+
+    UnitMetrics(String unit) {
+        this.unit = unit;
+        this.start = Sample.now();
+        this.stages = new LinkedHashMap<>();
+        this.total = null;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * @return what the whole unit cost, or null if it is still being compiled
+     */
+    public Sample getTotal() {
+        return total;
+    }
+
+    public Map<String, Sample> getStages() {
+        return Collections.unmodifiableMap(stages);
+    }
+
+    void begin(String stage) {
+        stages.putIfAbsent(stage, Sample.ZERO);
+    }
+
+    void add(String stage, Sample sample) {
+        stages.merge(stage, sample, Sample::plus);
+    }
+
+    @Override
+    public void close() {
+        if (total == null) {
+            total = Sample.now().since(start);
+            Metrics.stopUnit(this);
+        }
+    }
+}
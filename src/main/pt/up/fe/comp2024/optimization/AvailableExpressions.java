@@ -0,0 +1,133 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+
+import java.util.*;
+
+/**
+ * Forward analysis of the expressions available at each instruction, i.e. computed on every path to it with none of
+ * their operands assigned since. The expressions are the unary and binary operations assigned to variables, and two
+ * are the same if they apply the same operation to the same operands, see {@link #getExpression(Instruction)}.
+ */
+public class AvailableExpressions extends DataAnalysis {
+
+    private final List<String> expressions;
+    private final Map<String, Integer> expressionIndexes;
+    private final Map<String, BitVector> expressionsUsing;
+
+    // Expression computed by each instruction, or -1
+    private final int[] computed;
+
+    public AvailableExpressions(Method method) {
+        super(method, Direction.FORWARD, Meet.INTERSECTION);
+
+        this.expressions = new ArrayList<>();
+        this.expressionIndexes = new HashMap<>();
+        this.computed = new int[instructions.size()];
+
+        var operandsOf = new ArrayList<List<String>>();
+        for (int i = 0; i < instructions.size(); i++) {
+            computed[i] = -1;
+
+            if (!(instructions.get(i) instanceof AssignInstruction assign) || getDef(assign) == null) {
+                continue;
+            }
+
+            var expression = getExpression(assign.getRhs());
+            if (expression == null) {
+                continue;
+            }
+
+            computed[i] = expressionIndexes.computeIfAbsent(expression, key -> {
+                expressions.add(key);
+                operandsOf.add(getOperandNames((OpInstruction) assign.getRhs()));
+                return expressions.size() - 1;
+            });
+        }
+
+        this.expressionsUsing = new HashMap<>();
+        for (int expr = 0; expr < expressions.size(); expr++) {
+            for (var operand : operandsOf.get(expr)) {
+                expressionsUsing.computeIfAbsent(operand, variable -> new BitVector(expressions.size())).set(expr);
+            }
+        }
+
+        solve(expressions.size());
+    }
+
+    @Override
+    protected void computeTransfer(int inst, BitVector gen, BitVector kill) {
+        var def = getDef(instructions.get(inst));
+        if (def == null) {
+            return;
+        }
+
+        // Assigning a variable changes the value of the expressions that read it, even the one just computed
+        var using = expressionsUsing.get(def);
+        if (using != null) {
+            kill.copyFrom(using);
+        }
+
+        if (computed[inst] >= 0 && (using == null || !using.get(computed[inst]))) {
+            gen.set(computed[inst]);
+        }
+    }
+
+    public List<String> getExpressions() {
+        return expressions;
+    }
+
+    /**
+     * @return the expressions available right before the instruction, as indexes in {@link #getExpressions()}
+     */
+    public BitVector getAvailableIn(Instruction inst) {
+        return getIn(inst);
+    }
+
+    /**
+     * @return true if the expression is available right before the instruction
+     */
+    public boolean isAvailable(Instruction inst, String expression) {
+        var index = expressionIndexes.get(expression);
+
+        return index != null && getIn(inst).get(index);
+    }
+
+    /**
+     * Returns a key that is the same for instructions that compute the same value from the same variables and
+     * literals, e.g. "ADD a 1" for 'a.i32 +.i32 1.i32'.
+     *
+     * @return the key, or null if the instruction is not a unary or binary operation, or reads an array element
+     * (which a call or any array store could change)
+     */
+    public static String getExpression(Instruction inst) {
+        if (!(inst instanceof BinaryOpInstruction) && !(inst instanceof UnaryOpInstruction)) {
+            return null;
+        }
+
+        var opInst = (OpInstruction) inst;
+        var key = new StringBuilder(opInst.getOperation().getOpType().name());
+
+        for (var operand : opInst.getOperands()) {
+            if (operand instanceof ArrayOperand) {
+                return null;
+            }
+
+            key.append(' ');
+            if (operand instanceof LiteralElement literal) {
+                key.append('#').append(literal.getLiteral());
+            } else {
+                key.append(((Operand) operand).getName());
+            }
+        }
+
+        return key.toString();
+    }
+
+    private static List<String> getOperandNames(OpInstruction opInst) {
+        return opInst.getOperands().stream()
+                .filter(operand -> operand instanceof Operand)
+                .map(operand -> ((Operand) operand).getName())
+                .toList();
+    }
+}
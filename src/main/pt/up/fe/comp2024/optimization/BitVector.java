@@ -0,0 +1,165 @@
+package pt.up.fe.comp2024.optimization;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size set of the integers from 0 to size - 1, stored as the bits of a long[].
+ * <p>
+ * The dataflow analyses use one per instruction, so the set operations work in place and report whether they
+ * changed the set, instead of creating new sets.
+ */
+public class BitVector {
+
+    private static final int WORD_BITS = 64;
+
+    private final int size;
+    private final long[] words;
+
+    public BitVector(int size) {
+        this.size = size;
+        this.words = new long[(size + WORD_BITS - 1) / WORD_BITS];
+    }
+
+    public BitVector(BitVector other) {
+        this.size = other.size;
+        this.words = other.words.clone();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int index) {
+        return (words[index / WORD_BITS] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        words[index / WORD_BITS] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        words[index / WORD_BITS] &= ~(1L << index);
+    }
+
+    /**
+     * Adds every integer from 0 to size - 1 to the set.
+     */
+    public void setAll() {
+        Arrays.fill(words, -1L);
+
+        // Keep the bits past the size cleared, so equals and cardinality only see the real ones
+        int lastBits = size % WORD_BITS;
+        if (lastBits != 0) {
+            words[words.length - 1] = (1L << lastBits) - 1;
+        }
+    }
+
+    public void clearAll() {
+        Arrays.fill(words, 0L);
+    }
+
+    public void copyFrom(BitVector other) {
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    /**
+     * @return true if the set changed
+     */
+    public boolean or(BitVector other) {
+        boolean changed = false;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i] | other.words[i];
+            changed |= word != words[i];
+            words[i] = word;
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return true if the set changed
+     */
+    public boolean and(BitVector other) {
+        boolean changed = false;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i] & other.words[i];
+            changed |= word != words[i];
+            words[i] = word;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Removes the elements of the other set from this one.
+     */
+    public void andNot(BitVector other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    /**
+     * @return the first element not smaller than the given one, or -1 if there is none, so the elements can be
+     * iterated with {@code for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1))}
+     */
+    public int nextSetBit(int from) {
+        if (from >= size) {
+            return -1;
+        }
+
+        int wordIndex = from / WORD_BITS;
+        long word = words[wordIndex] & (-1L << from);
+
+        while (word == 0) {
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+
+        return wordIndex * WORD_BITS + Long.numberOfTrailingZeros(word);
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof BitVector other && size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        var string = new StringBuilder("{");
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+            if (string.length() > 1) {
+                string.append(", ");
+            }
+            string.append(i);
+        }
+
+        return string.append("}").toString();
+    }
+}
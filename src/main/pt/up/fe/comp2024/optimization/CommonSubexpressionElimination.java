@@ -0,0 +1,286 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+
+import java.util.*;
+
+/**
+ * Reuses values computed earlier in the same basic block instead of computing them again, e.g. the second
+ * 'a.i32 +.i32 1.i32' or 'arraylength(a)' of a statement becomes a copy of the variable the first was assigned to.
+ * <p>
+ * The values are unary and binary operations, array lengths, array elements and fields. A value can be reused
+ * while neither its operands nor the variable holding it are assigned again. Storing into any array forgets the
+ * array elements, storing into a field forgets the values of that field, and a call forgets both, since the called
+ * method may store into them.
+ * <p>
+ * The copies left behind are removed by {@link CopyCoalescing}.
+ */
+public class CommonSubexpressionElimination {
+
+    private final ClassUnit unit;
+
+    public CommonSubexpressionElimination(OllirResult ollirResult) {
+        this.unit = ollirResult.getOllirClass();
+    }
+
+    public void eliminate() {
+        for (var method : unit.getMethods()) {
+            eliminate(method);
+            OptUtils.buildCFG(method);
+        }
+    }
+
+    /**
+     * A value computed in the current block, and the variable that holds it.
+     */
+    private record Value(String key, Operand holder, Set<String> operands, boolean isArrayElement, String field) {
+    }
+
+    private void eliminate(Method method) {
+        var instructions = method.getInstructions();
+        var leaders = getLeaders(method);
+
+        // Values available in the current block, by key
+        var values = new HashMap<String, Value>();
+
+        // Variables that are copies of others in the current block, so values read from either are the same
+        var copies = new HashMap<String, String>();
+
+        for (int i = 0; i < instructions.size(); i++) {
+            if (leaders.contains(instructions.get(i))) {
+                values.clear();
+                copies.clear();
+            }
+
+            var inst = instructions.get(i);
+
+            if (inst instanceof AssignInstruction assign && !(assign.getDest() instanceof ArrayOperand)
+                    && assign.getDest() instanceof Operand dest) {
+                reuseArrayElements(assign.getRhs(), values, copies);
+
+                var value = getValue(assign.getRhs(), dest, copies);
+                var available = value == null ? null : values.get(value.key());
+
+                if (available != null) {
+                    var copy = new AssignInstruction(dest, assign.getTypeOfAssign(),
+                            new SingleOpInstruction(new Operand(available.holder().getName(),
+                                    available.holder().getType())));
+                    instructions.set(i, copy);
+                    method.getLabels().replaceAll((label, labeled) -> labeled == inst ? copy : labeled);
+                }
+
+                var source = available != null ? available.holder().getName() : getCopySource(assign, copies);
+
+                if (isCall(assign.getRhs())) {
+                    forgetMemory(values, null);
+                }
+
+                // The values read or held by the variable assigned change, including the one just computed
+                values.values().removeIf(v -> v.holder().getName().equals(dest.getName())
+                        || v.operands().contains(dest.getName()));
+
+                copies.entrySet().removeIf(copy -> copy.getKey().equals(dest.getName())
+                        || copy.getValue().equals(dest.getName()));
+
+                if (source != null && !source.equals(dest.getName())) {
+                    copies.put(dest.getName(), source);
+                } else if (value != null && !value.operands().contains(dest.getName())) {
+                    values.put(value.key(), value);
+                }
+            } else if (inst instanceof AssignInstruction assign) {
+                // Stores into an array, which may be any of the arrays read
+                values.values().removeIf(Value::isArrayElement);
+
+                if (isCall(assign.getRhs())) {
+                    forgetMemory(values, null);
+                }
+            } else if (inst instanceof PutFieldInstruction putField) {
+                forgetMemory(values, putField.getField().getName());
+            } else if (isCall(inst)) {
+                forgetMemory(values, null);
+            }
+        }
+    }
+
+    /**
+     * @return true if the instruction calls a method or a constructor, unlike 'arraylength'
+     */
+    private static boolean isCall(Instruction inst) {
+        return inst instanceof CallInstruction call && call.getInvocationType() != CallType.arraylength;
+    }
+
+    /**
+     * Forgets the array elements and the values of the field, or of every field if it is null.
+     */
+    private static void forgetMemory(Map<String, Value> values, String field) {
+        if (field == null) {
+            values.values().removeIf(value -> value.isArrayElement() || value.field() != null);
+        } else {
+            values.values().removeIf(value -> field.equals(value.field()));
+        }
+    }
+
+    /**
+     * @return the instructions that start a basic block, i.e. the first one, the labeled ones and the ones after a
+     * jump or a return
+     */
+    private static Set<Instruction> getLeaders(Method method) {
+        var instructions = method.getInstructions();
+        var leaders = Collections.newSetFromMap(new IdentityHashMap<Instruction, Boolean>());
+
+        leaders.addAll(method.getLabels().values());
+        for (int i = 0; i < instructions.size(); i++) {
+            var type = instructions.get(i).getInstType();
+
+            if (i == 0) {
+                leaders.add(instructions.get(i));
+            }
+
+            if ((type == InstructionType.BRANCH || type == InstructionType.GOTO || type == InstructionType.RETURN)
+                    && i + 1 < instructions.size()) {
+                leaders.add(instructions.get(i + 1));
+            }
+        }
+
+        return leaders;
+    }
+
+    /**
+     * @return the value the instruction computes, or null if it is not one that can be reused
+     */
+    private static Value getValue(Instruction rhs, Operand holder, Map<String, String> copies) {
+        var operands = new HashSet<String>();
+
+        if (rhs instanceof BinaryOpInstruction binaryOp) {
+            var left = getKey(binaryOp.getLeftOperand(), operands, copies);
+            var right = getKey(binaryOp.getRightOperand(), operands, copies);
+            var opType = binaryOp.getOperation().getOpType();
+
+            if (left == null || right == null) {
+                return null;
+            }
+
+            // 'a + b' and 'b + a' are the same value
+            if (isCommutative(opType) && left.compareTo(right) > 0) {
+                var swap = left;
+                left = right;
+                right = swap;
+            }
+
+            return new Value(opType + " " + left + " " + right, holder, operands, readsArray(binaryOp), null);
+        }
+
+        if (rhs instanceof UnaryOpInstruction unaryOp) {
+            var operand = getKey(unaryOp.getOperand(), operands, copies);
+
+            return operand == null ? null : new Value(unaryOp.getOperation().getOpType() + " " + operand, holder,
+                    operands, readsArray(unaryOp), null);
+        }
+
+        if (rhs instanceof CallInstruction call && call.getInvocationType() == CallType.arraylength) {
+            var array = getKey(call.getCaller(), operands, copies);
+
+            return array == null ? null : new Value("arraylength " + array, holder, operands, false, null);
+        }
+
+        if (rhs instanceof SingleOpInstruction singleOp && singleOp.getSingleOperand() instanceof ArrayOperand array) {
+            var element = getKey(array, operands, copies);
+
+            return element == null ? null : new Value(element, holder, operands, true, null);
+        }
+
+        if (rhs instanceof GetFieldInstruction getField) {
+            var object = getKey(getField.getObject(), operands, copies);
+            var field = getField.getField().getName();
+
+            return object == null ? null
+                    : new Value("getfield " + object + " " + field, holder, operands, false, field);
+        }
+
+        return null;
+    }
+
+    private static boolean readsArray(OpInstruction opInst) {
+        return opInst.getOperands().stream().anyMatch(operand -> operand instanceof ArrayOperand);
+    }
+
+    /**
+     * Replaces the array elements an operation reads by the variables that already hold them, e.g. 'a[i] + 1'
+     * becomes 'x + 1' after 'x := a[i]'.
+     */
+    private static void reuseArrayElements(Instruction rhs, Map<String, Value> values, Map<String, String> copies) {
+        if (rhs instanceof BinaryOpInstruction binaryOp) {
+            binaryOp.setLeftOperand(reuseArrayElement(binaryOp.getLeftOperand(), values, copies));
+            binaryOp.setRightOperand(reuseArrayElement(binaryOp.getRightOperand(), values, copies));
+        } else if (rhs instanceof UnaryOpInstruction unaryOp) {
+            unaryOp.setOperand(reuseArrayElement(unaryOp.getOperand(), values, copies));
+        }
+    }
+
+    private static Element reuseArrayElement(Element operand, Map<String, Value> values, Map<String, String> copies) {
+        if (!(operand instanceof ArrayOperand)) {
+            return operand;
+        }
+
+        var element = getKey(operand, new HashSet<>(), copies);
+        var available = element == null ? null : values.get(element);
+        if (available == null) {
+            return operand;
+        }
+
+        return new Operand(available.holder().getName(), available.holder().getType());
+    }
+
+    /**
+     * @return the variable the assignment copies, or the variable that one is a copy of, or null if it is not a copy
+     */
+    private static String getCopySource(AssignInstruction assign, Map<String, String> copies) {
+        if (assign.getRhs() instanceof SingleOpInstruction singleOp
+                && singleOp.getSingleOperand() instanceof Operand source && !(source instanceof ArrayOperand)) {
+            return copies.getOrDefault(source.getName(), source.getName());
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the operand in a key, e.g. 'a[i]' for an array element, adding the variables it reads to the operands.
+     * Copies of a variable are replaced by the variable.
+     */
+    private static String getKey(Element element, Set<String> operands, Map<String, String> copies) {
+        if (element instanceof LiteralElement literal) {
+            return "#" + literal.getLiteral();
+        }
+
+        if (!(element instanceof Operand operand)) {
+            return null;
+        }
+
+        var name = copies.getOrDefault(operand.getName(), operand.getName());
+        operands.add(name);
+
+        if (!(operand instanceof ArrayOperand array)) {
+            return name;
+        }
+
+        var key = new StringBuilder(name);
+        for (var index : array.getIndexOperands()) {
+            var indexKey = getKey(index, operands, copies);
+            if (indexKey == null) {
+                return null;
+            }
+
+            key.append('[').append(indexKey).append(']');
+        }
+
+        return key.toString();
+    }
+
+    private static boolean isCommutative(OperationType opType) {
+        return switch (opType) {
+            case ADD, MUL, EQ, NEQ, ANDB, ORB -> true;
+            default -> false;
+        };
+    }
+}
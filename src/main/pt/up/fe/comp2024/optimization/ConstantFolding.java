@@ -0,0 +1,164 @@
+package pt.up.fe.comp2024.optimization;
+
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.List;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+/**
+ * Replaces expressions whose operands are all literals by the literal they evaluate to, e.g. '2 * 3 + 1' by '7'.
+ * <p>
+ * Children are folded before their parent, so a whole constant subtree folds in a single visit. Expressions that
+ * would throw at run time, such as a division by zero, are left as they are.
+ */
+public class ConstantFolding extends AJmmVisitor<Void, Boolean> {
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(BINARY_EXPR, this::visitBinaryExpr);
+        addVisit(NEGATION, this::visitNegation);
+        addVisit(PRIORITY, this::visitPriority);
+
+        setDefaultVisit(this::visitChildren);
+    }
+
+    /**
+     * @return true if any expression was folded
+     */
+    private Boolean visitChildren(JmmNode node, Void unused) {
+        boolean changed = false;
+
+        // Folding replaces the children, so iterate over a copy of the list
+        for (var child : List.copyOf(node.getChildren())) {
+            changed |= visit(child);
+        }
+
+        return changed;
+    }
+
+    private Boolean visitPriority(JmmNode node, Void unused) {
+        boolean changed = visitChildren(node, unused);
+
+        var expr = node.getJmmChild(0);
+        if (!isLiteral(expr)) {
+            return changed;
+        }
+
+        node.replace(expr.detach());
+        return true;
+    }
+
+    private Boolean visitNegation(JmmNode node, Void unused) {
+        boolean changed = visitChildren(node, unused);
+
+        var expr = node.getJmmChild(0);
+        if (!BOOLEAN_LITERAL.check(expr)) {
+            return changed;
+        }
+
+        node.replace(newBooleanLiteral(!getBoolean(expr), node));
+        return true;
+    }
+
+    private Boolean visitBinaryExpr(JmmNode node, Void unused) {
+        boolean changed = visitChildren(node, unused);
+
+        var lhs = node.getJmmChild(0);
+        var rhs = node.getJmmChild(1);
+        var op = node.get("op");
+
+        if (op.equals("&&")) {
+            return foldAnd(node, lhs, rhs) || changed;
+        }
+
+        if (!INTEGER_LITERAL.check(lhs) || !INTEGER_LITERAL.check(rhs)) {
+            return changed;
+        }
+
+        int left, right;
+        try {
+            left = Integer.parseInt(lhs.get("value"));
+            right = Integer.parseInt(rhs.get("value"));
+        } catch (NumberFormatException e) {
+            return changed;
+        }
+
+        JmmNode literal = switch (op) {
+            case "+" -> newIntegerLiteral(left + right, node);
+            case "-" -> newIntegerLiteral(left - right, node);
+            case "*" -> newIntegerLiteral(left * right, node);
+            case "/" -> right == 0 ? null : newIntegerLiteral(left / right, node);
+            case "<" -> newBooleanLiteral(left < right, node);
+            case ">" -> newBooleanLiteral(left > right, node);
+            default -> null;
+        };
+
+        if (literal == null) {
+            return changed;
+        }
+
+        node.replace(literal);
+        return true;
+    }
+
+    /**
+     * Folds '&&' when its left operand is a literal, which decides whether the right one is evaluated, or when its
+     * right operand is 'true'. 'x && false' is kept, since x may have side effects.
+     */
+    private boolean foldAnd(JmmNode node, JmmNode lhs, JmmNode rhs) {
+        if (BOOLEAN_LITERAL.check(lhs)) {
+            node.replace(getBoolean(lhs) ? rhs.detach() : lhs.detach());
+            return true;
+        }
+
+        if (BOOLEAN_LITERAL.check(rhs) && getBoolean(rhs)) {
+            node.replace(lhs.detach());
+            return true;
+        }
+
+        return false;
+    }
+
+    public static boolean isLiteral(JmmNode node) {
+        return Kind.check(node, INTEGER_LITERAL, BOOLEAN_LITERAL);
+    }
+
+    private static boolean getBoolean(JmmNode literal) {
+        return Boolean.parseBoolean(literal.get("value"));
+    }
+
+    private static JmmNode newIntegerLiteral(int value, JmmNode replaced) {
+        return newLiteral(INTEGER_LITERAL, Integer.toString(value), replaced);
+    }
+
+    private static JmmNode newBooleanLiteral(boolean value, JmmNode replaced) {
+        return newLiteral(BOOLEAN_LITERAL, Boolean.toString(value), replaced);
+    }
+
+    /**
+     * Creates a copy of the literal at the position of the expression it replaces. {@link JmmNode#copy()} is not
+     * used, since it would turn the type stored by the type inference pass into a String.
+     */
+    static JmmNode newLiteral(JmmNode literal, JmmNode replaced) {
+        return newLiteral(Kind.fromString(literal.getKind()), literal.get("value"), replaced);
+    }
+
+    /**
+     * Creates a literal node like the parser would, at the position of the expression it replaces.
+     */
+    private static JmmNode newLiteral(Kind kind, String value, JmmNode replaced) {
+        var literal = new JmmNodeImpl(kind.getNodeName());
+        literal.setHierarchy(List.of(kind.getNodeName(), "Expr"));
+        literal.put("value", value);
+
+        for (var attribute : List.of("lineStart", "colStart", "lineEnd", "colEnd")) {
+            replaced.getOptional(attribute).ifPresent(position -> literal.put(attribute, position));
+        }
+
+        return literal;
+    }
+}
@@ -0,0 +1,132 @@
+package pt.up.fe.comp2024.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.TypeUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+/**
+ * Replaces uses of local variables by the literal last assigned to them, when every path to the use assigns the same
+ * literal, e.g. 'a = 10; return a;' returns '10'.
+ * <p>
+ * Statements are visited in order, keeping the literal each variable holds. After an if, a variable only keeps its
+ * literal if both branches leave it with the same one. A loop can run any number of times, so the variables assigned
+ * in it hold no literal inside the loop nor after it. Fields are never propagated, since a call can change them.
+ */
+public class ConstantPropagation extends AJmmVisitor<Void, Boolean> {
+
+    private final SymbolTable table;
+
+    // Literal held by each local variable at the statement being visited
+    private Map<String, JmmNode> constants;
+    private String methodName;
+
+    public ConstantPropagation(SymbolTable table) {
+        this.table = table;
+        this.constants = new HashMap<>();
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(METHOD_DECL, this::visitMethodDecl);
+        addVisit(ASSIGN_STMT, this::visitAssignStmt);
+        addVisit(IF_STMT, this::visitIfStmt);
+        addVisit(WHILE_STMT, this::visitWhileStmt);
+        addVisit(VAR_REF_EXPR, this::visitVarRef);
+
+        setDefaultVisit(this::visitChildren);
+    }
+
+    /**
+     * @return true if any variable was replaced by a literal
+     */
+    private Boolean visitChildren(JmmNode node, Void unused) {
+        boolean changed = false;
+
+        // Propagation replaces the children, so iterate over a copy of the list
+        for (var child : List.copyOf(node.getChildren())) {
+            changed |= visit(child);
+        }
+
+        return changed;
+    }
+
+    private Boolean visitMethodDecl(JmmNode node, Void unused) {
+        constants = new HashMap<>();
+        methodName = node.get("name");
+
+        return visitChildren(node, unused);
+    }
+
+    private Boolean visitAssignStmt(JmmNode node, Void unused) {
+        boolean changed = visitChildren(node, unused);
+
+        var name = node.get("name");
+        var rhs = node.getJmmChild(0);
+
+        if (ConstantFolding.isLiteral(rhs) && isLocal(name)) {
+            constants.put(name, ConstantFolding.newLiteral(rhs, rhs));
+        } else {
+            constants.remove(name);
+        }
+
+        return changed;
+    }
+
+    private Boolean visitIfStmt(JmmNode node, Void unused) {
+        boolean changed = visit(node.getJmmChild(0));
+
+        var beforeIf = new HashMap<>(constants);
+        changed |= visit(node.getJmmChild(1));
+
+        var afterThen = constants;
+        constants = beforeIf;
+        changed |= visit(node.getJmmChild(2));
+
+        constants.entrySet().removeIf(entry -> !isSameLiteral(entry.getValue(), afterThen.get(entry.getKey())));
+
+        return changed;
+    }
+
+    private Boolean visitWhileStmt(JmmNode node, Void unused) {
+        for (var assign : node.getDescendants(ASSIGN_STMT)) {
+            constants.remove(assign.get("name"));
+        }
+
+        boolean changed = visit(node.getJmmChild(0));
+
+        // What the body assigns is already unknown after the loop, the rest is unchanged by it
+        var beforeBody = new HashMap<>(constants);
+        changed |= visit(node.getJmmChild(1));
+        constants = beforeBody;
+
+        return changed;
+    }
+
+    private Boolean visitVarRef(JmmNode node, Void unused) {
+        var literal = constants.get(node.get("name"));
+        if (literal == null) {
+            return false;
+        }
+
+        node.replace(ConstantFolding.newLiteral(literal, node));
+        return true;
+    }
+
+    private boolean isLocal(String name) {
+        return TypeUtils.resolveVar(name, methodName, table)
+                .map(symbol -> !symbol.isField())
+                .orElse(false);
+    }
+
+    private static boolean isSameLiteral(JmmNode literal, JmmNode other) {
+        return other != null && literal.getKind().equals(other.getKind())
+                && literal.get("value").equals(other.get("value"));
+    }
+}
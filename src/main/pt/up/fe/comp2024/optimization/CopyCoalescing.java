@@ -0,0 +1,262 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Merges variables that never hold different values at the same time, so each method reads and writes fewer of them:
+ * <ul>
+ *     <li>the destination and source of a copy, e.g. 'b.i32 :=.i32 tmp3.i32', become one variable, and the copy
+ *     is removed;</li>
+ *     <li>temporaries of the same type whose live ranges do not interfere become one temporary.</li>
+ * </ul>
+ * The temporaries are the variables the source code does not declare, see {@link TempGenerator}. Without a symbol
+ * table, e.g. for OLLIR code that was not generated from Java--, no variable is taken for a temporary.
+ * Two variables are merged by renaming every operand of one to the other. 'this' and the parameters keep their
+ * names, since the JVM passes them in fixed registers. The remaining variables are then numbered again after the
+ * parameters, so the method needs fewer registers even without '-r'.
+ */
+public class CopyCoalescing {
+
+    private final ClassUnit unit;
+    private final Set<String> declaredNames;
+
+    public CopyCoalescing(OllirResult ollirResult) {
+        this.unit = ollirResult.getOllirClass();
+        this.declaredNames = ollirResult.getSymbolTable() == null ? null
+                : TempGenerator.getDeclaredNames(ollirResult.getSymbolTable());
+    }
+
+    public void coalesce() {
+        for (var method : unit.getMethods()) {
+            OptUtils.buildCFG(method);
+            coalesce(method);
+            OptUtils.buildCFG(method);
+        }
+    }
+
+    private void coalesce(Method method) {
+        var varTable = method.getVarTable();
+        var liveness = new LivenessAnalysis(method);
+        var variables = liveness.getVariables();
+        int numVariables = variables.size();
+
+        var fixed = new boolean[numVariables];
+        var atEntry = new ArrayList<Integer>();
+        for (int i = 0; i < numVariables; i++) {
+            var name = variables.get(i);
+            fixed[i] = name.equals("this") || varTable.get(name).getScope() == VarScope.PARAMETER;
+
+            if (fixed[i]) {
+                atEntry.add(i);
+            }
+        }
+
+        var graph = InterferenceGraph.build(liveness, atEntry);
+
+        // Variable each variable is merged into, itself if it is not merged
+        var mergedInto = new int[numVariables];
+        for (int i = 0; i < numVariables; i++) {
+            mergedInto[i] = i;
+        }
+
+        for (var inst : method.getInstructions()) {
+            int source = liveness.getCopySource(inst);
+            if (source < 0) {
+                continue;
+            }
+
+            int dest = find(mergedInto, liveness.getDefs(inst).nextSetBit(0));
+            source = find(mergedInto, source);
+
+            if (canMerge(method, liveness, graph, fixed, dest, source)) {
+                // The destination is usually the variable of the source code, so its name is kept
+                int into = fixed[source] ? source : dest;
+                int from = into == dest ? source : dest;
+
+                graph.merge(into, from);
+                mergedInto[from] = into;
+            }
+        }
+
+        // Each temporary is merged into the first temporary it can share a register with
+        var temps = new ArrayList<Integer>();
+        for (int i = 0; i < numVariables; i++) {
+            if (find(mergedInto, i) != i || fixed[i] || !isTemp(variables.get(i))) {
+                continue;
+            }
+
+            boolean merged = false;
+            for (int temp : temps) {
+                if (canMerge(method, liveness, graph, fixed, temp, i)) {
+                    graph.merge(temp, i);
+                    mergedInto[i] = temp;
+                    merged = true;
+                    break;
+                }
+            }
+
+            if (!merged) {
+                temps.add(i);
+            }
+        }
+
+        var renames = new HashMap<String, String>();
+        for (int i = 0; i < numVariables; i++) {
+            int into = find(mergedInto, i);
+            if (into != i) {
+                renames.put(variables.get(i), variables.get(into));
+            }
+        }
+
+        if (renames.isEmpty()) {
+            return;
+        }
+
+        for (var inst : method.getInstructions()) {
+            forEachOperand(inst, operand -> {
+                var rename = renames.get(operand.getName());
+                if (rename != null) {
+                    operand.setName(rename);
+                }
+            });
+        }
+
+        removeSelfCopies(method);
+
+        renames.keySet().forEach(varTable::remove);
+        renumber(method, fixed, variables);
+    }
+
+    private static int find(int[] mergedInto, int variable) {
+        while (mergedInto[variable] != variable) {
+            variable = mergedInto[variable];
+        }
+
+        return variable;
+    }
+
+    private static boolean canMerge(Method method, LivenessAnalysis liveness, InterferenceGraph graph, boolean[] fixed,
+                                    int var1, int var2) {
+        if (var1 == var2 || (fixed[var1] && fixed[var2]) || graph.interferes(var1, var2)) {
+            return false;
+        }
+
+        // 'this' is never overwritten, even when it is not used
+        if (liveness.getVariable(var1).equals("this") || liveness.getVariable(var2).equals("this")) {
+            return false;
+        }
+
+        var varTable = method.getVarTable();
+        var type1 = varTable.get(liveness.getVariable(var1)).getVarType().toString();
+        var type2 = varTable.get(liveness.getVariable(var2)).getVarType().toString();
+
+        return type1.equals(type2);
+    }
+
+    private boolean isTemp(String name) {
+        return declaredNames != null && !declaredNames.contains(name);
+    }
+
+    private static void removeSelfCopies(Method method) {
+        var instructions = method.getInstructions();
+        var remove = new boolean[instructions.size()];
+
+        for (int i = 0; i < instructions.size(); i++) {
+            remove[i] = instructions.get(i) instanceof AssignInstruction assign
+                    && !(assign.getDest() instanceof ArrayOperand)
+                    && assign.getDest() instanceof Operand dest
+                    && assign.getRhs() instanceof SingleOpInstruction singleOp
+                    && singleOp.getSingleOperand() instanceof Operand source
+                    && !(source instanceof ArrayOperand)
+                    && dest.getName().equals(source.getName());
+        }
+
+        OptUtils.removeInstructions(method, remove);
+    }
+
+    /**
+     * Numbers the registers of the variables that are not fixed again, in their current order, right after the
+     * registers of 'this' and the parameters.
+     */
+    private static void renumber(Method method, boolean[] fixed, List<String> variables) {
+        var varTable = method.getVarTable();
+
+        int next = method.isStaticMethod() ? 0 : 1;
+        for (int i = 0; i < variables.size(); i++) {
+            if (fixed[i]) {
+                next = Math.max(next, varTable.get(variables.get(i)).getVirtualReg() + 1);
+            }
+        }
+
+        // The variables are sorted by register
+        for (int i = 0; i < variables.size(); i++) {
+            var descriptor = varTable.get(variables.get(i));
+            if (!fixed[i] && descriptor != null) {
+                descriptor.setVirtualReg(next++);
+            }
+        }
+    }
+
+    /**
+     * Calls the consumer with each operand of the instruction that may name a variable, including the variable it
+     * assigns, but not field names.
+     */
+    private static void forEachOperand(Instruction inst, Consumer<Operand> consumer) {
+        switch (inst.getInstType()) {
+            case ASSIGN -> {
+                var assign = (AssignInstruction) inst;
+                forEachOperand(assign.getDest(), consumer);
+                forEachOperand(assign.getRhs(), consumer);
+            }
+            case CALL -> {
+                var call = (CallInstruction) inst;
+                var operands = call.getOperands();
+
+                // The first operand of a 'new' is the class or 'array', not a variable
+                int first = call.getInvocationType() == CallType.NEW ? 1 : 0;
+                for (var operand : operands.subList(first, operands.size())) {
+                    forEachOperand(operand, consumer);
+                }
+            }
+            case BRANCH -> ((CondBranchInstruction) inst).getOperands()
+                    .forEach(operand -> forEachOperand(operand, consumer));
+            case PUTFIELD -> {
+                var putField = (PutFieldInstruction) inst;
+                forEachOperand(putField.getObject(), consumer);
+                forEachOperand(putField.getValue(), consumer);
+            }
+            case GETFIELD -> forEachOperand(((GetFieldInstruction) inst).getObject(), consumer);
+            case UNARYOPER -> forEachOperand(((UnaryOpInstruction) inst).getOperand(), consumer);
+            case BINARYOPER -> {
+                var binaryOp = (BinaryOpInstruction) inst;
+                forEachOperand(binaryOp.getLeftOperand(), consumer);
+                forEachOperand(binaryOp.getRightOperand(), consumer);
+            }
+            case NOPER -> forEachOperand(((SingleOpInstruction) inst).getSingleOperand(), consumer);
+            case RETURN -> {
+                var returnInst = (ReturnInstruction) inst;
+                if (returnInst.hasReturnValue()) {
+                    forEachOperand(returnInst.getOperand(), consumer);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static void forEachOperand(Element element, Consumer<Operand> consumer) {
+        if (!(element instanceof Operand operand)) {
+            return;
+        }
+
+        consumer.accept(operand);
+
+        if (operand instanceof ArrayOperand arrayOperand) {
+            arrayOperand.getIndexOperands().forEach(index -> forEachOperand(index, consumer));
+        }
+    }
+}
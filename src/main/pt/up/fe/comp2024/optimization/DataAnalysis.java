@@ -1,16 +1,321 @@
 package pt.up.fe.comp2024.optimization;
 
-import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.*;
 
 import java.util.*;
-import java.util.Collections;
+import java.util.function.Consumer;
 
-public class DataAnalysis {
-    public static void runAnalysis(Method m) {
-        var instructs = m.getInstructions();
+/**
+ * Dataflow analysis over the CFG of the instructions of a method, for the gen/kill problems where the facts are
+ * small integers (variables, definitions, expressions) kept in a {@link BitVector} per instruction.
+ * <p>
+ * The facts leaving an instruction are gen + (entering - kill), and the facts entering it are the union or the
+ * intersection of the ones leaving its neighbours: its predecessors in a forward analysis, its successors in a
+ * backward one. Subclasses give the number of facts and the gen and kill sets of each instruction, and
+ * {@link #solve(int)} iterates with a worklist until no set changes. The worklist starts in reverse postorder
+ * (postorder for backward analyses), so each instruction is usually visited after the ones it depends on.
+ */
+public abstract class DataAnalysis {
 
-        for (var i : instructs) {
-            // SOMETHING SOMETHING wish it worked SOMETHING SOMETHING
+    public enum Direction {
+        FORWARD,
+        BACKWARD
+    }
+
+    public enum Meet {
+        UNION,
+        INTERSECTION
+    }
+
+    protected final Method method;
+    protected final List<Instruction> instructions;
+
+    private final Direction direction;
+    private final Meet meet;
+    private final Map<Instruction, Integer> indexes;
+
+    private final int[][] successors;
+    private final int[][] predecessors;
+    // Instructions that reach the end of the method (or that start it, for predecessors)
+    private final boolean[] atBoundary;
+
+    // Facts before and after each instruction, in program order whatever the direction
+    private BitVector[] in;
+    private BitVector[] out;
+
+    /**
+     * The CFG of the method must already be built.
+     */
+    protected DataAnalysis(Method method, Direction direction, Meet meet) {
+        this.method = method;
+        this.instructions = method.getInstructions();
+        this.direction = direction;
+        this.meet = meet;
+        this.indexes = new HashMap<>();
+
+        for (int i = 0; i < instructions.size(); i++) {
+            indexes.put(instructions.get(i), i);
+        }
+
+        int numInstructions = instructions.size();
+        this.successors = new int[numInstructions][];
+        this.predecessors = new int[numInstructions][];
+        this.atBoundary = new boolean[numInstructions];
+
+        for (int i = 0; i < numInstructions; i++) {
+            var inst = instructions.get(i);
+            successors[i] = toIndexes(inst.getSuccessors());
+            predecessors[i] = toIndexes(inst.getPredecessors());
+
+            // Begin and end are nodes of the CFG, but not instructions
+            atBoundary[i] = direction == Direction.FORWARD
+                    ? i == 0 || predecessors[i].length < inst.getPredecessors().size()
+                    : successors[i].length < inst.getSuccessors().size() || inst.getSuccessors().isEmpty();
+        }
+    }
+
+    private int[] toIndexes(List<Node> nodes) {
+        return nodes.stream()
+                .map(indexes::get)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Sets the facts the given instruction generates and kills, both start empty.
+     */
+    protected abstract void computeTransfer(int inst, BitVector gen, BitVector kill);
+
+    /**
+     * Runs the analysis over the given number of facts.
+     */
+    protected void solve(int numFacts) {
+        int numInstructions = instructions.size();
+
+        var gen = new BitVector[numInstructions];
+        var kill = new BitVector[numInstructions];
+        in = new BitVector[numInstructions];
+        out = new BitVector[numInstructions];
+
+        for (int i = 0; i < numInstructions; i++) {
+            gen[i] = new BitVector(numFacts);
+            kill[i] = new BitVector(numFacts);
+            computeTransfer(i, gen[i], kill[i]);
+
+            in[i] = new BitVector(numFacts);
+            out[i] = new BitVector(numFacts);
+
+            // An intersection starts from every fact, and removes the ones that do not hold on some path
+            if (meet == Meet.INTERSECTION) {
+                in[i].setAll();
+                out[i].setAll();
+            }
+        }
+
+        boolean forward = direction == Direction.FORWARD;
+        var entering = forward ? in : out;
+        var leaving = forward ? out : in;
+        var sources = forward ? predecessors : successors;
+        var dependents = forward ? successors : predecessors;
+
+        var worklist = new ArrayDeque<Integer>(numInstructions);
+        var queued = new boolean[numInstructions];
+        var order = reversePostorder();
+        for (int i = 0; i < numInstructions; i++) {
+            int inst = forward ? order[i] : order[numInstructions - 1 - i];
+            worklist.add(inst);
+            queued[inst] = true;
+        }
+
+        var result = new BitVector(numFacts);
+        while (!worklist.isEmpty()) {
+            int inst = worklist.poll();
+            queued[inst] = false;
+
+            // Nothing flows into the method from before its start or after its end
+            var facts = entering[inst];
+            if (atBoundary[inst] || meet == Meet.UNION) {
+                facts.clearAll();
+            } else {
+                facts.setAll();
+            }
+
+            for (int source : sources[inst]) {
+                if (meet == Meet.UNION) {
+                    facts.or(leaving[source]);
+                } else {
+                    facts.and(leaving[source]);
+                }
+            }
+
+            result.copyFrom(facts);
+            result.andNot(kill[inst]);
+            result.or(gen[inst]);
+
+            if (!result.equals(leaving[inst])) {
+                leaving[inst].copyFrom(result);
+
+                for (int dependent : dependents[inst]) {
+                    if (!queued[dependent]) {
+                        worklist.add(dependent);
+                        queued[dependent] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the instructions in reverse postorder from the first one, followed by the unreachable ones
+     */
+    private int[] reversePostorder() {
+        int numInstructions = instructions.size();
+        var postorder = new int[numInstructions];
+        int count = 0;
+
+        var visited = new boolean[numInstructions];
+        var stack = new ArrayDeque<int[]>();
+        if (numInstructions > 0) {
+            stack.push(new int[]{0, 0});
+            visited[0] = true;
         }
+
+        // Iterative depth-first search, each entry is an instruction and its next successor to visit
+        while (!stack.isEmpty()) {
+            var top = stack.peek();
+            var succs = successors[top[0]];
+
+            if (top[1] < succs.length) {
+                int succ = succs[top[1]++];
+                if (!visited[succ]) {
+                    visited[succ] = true;
+                    stack.push(new int[]{succ, 0});
+                }
+            } else {
+                postorder[count++] = stack.pop()[0];
+            }
+        }
+
+        var order = new int[numInstructions];
+        for (int i = 0; i < count; i++) {
+            order[i] = postorder[count - 1 - i];
+        }
+
+        for (int i = 0; i < numInstructions; i++) {
+            if (!visited[i]) {
+                order[count++] = i;
+            }
+        }
+
+        return order;
+    }
+
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    protected int getIndex(Instruction inst) {
+        return indexes.get(inst);
+    }
+
+    /**
+     * @return the facts that hold right before the instruction
+     */
+    public BitVector getIn(Instruction inst) {
+        return in[getIndex(inst)];
+    }
+
+    /**
+     * @return the facts that hold right after the instruction
+     */
+    public BitVector getOut(Instruction inst) {
+        return out[getIndex(inst)];
+    }
+
+    /**
+     * @return the variable the instruction assigns, or null if it does not assign one (storing into an array
+     * element does not)
+     */
+    protected String getDef(Instruction inst) {
+        if (inst instanceof AssignInstruction assign && !(assign.getDest() instanceof ArrayOperand)
+                && assign.getDest() instanceof Operand dest && isVariable(dest.getName())) {
+            return dest.getName();
+        }
+
+        return null;
+    }
+
+    /**
+     * Calls the consumer with each variable the instruction reads, including array references and indexes.
+     */
+    protected void forEachUse(Instruction inst, Consumer<String> consumer) {
+        switch (inst.getInstType()) {
+            case ASSIGN -> {
+                var assign = (AssignInstruction) inst;
+
+                // Storing into an array reads the array reference and the index
+                if (assign.getDest() instanceof ArrayOperand) {
+                    forEachUse(assign.getDest(), consumer);
+                }
+
+                forEachUse(assign.getRhs(), consumer);
+            }
+            case CALL -> {
+                var call = (CallInstruction) inst;
+                var operands = call.getOperands();
+
+                // The first operand of a 'new' is the class or 'array', not a variable
+                int first = call.getInvocationType() == CallType.NEW ? 1 : 0;
+                for (var operand : operands.subList(first, operands.size())) {
+                    forEachUse(operand, consumer);
+                }
+            }
+            case BRANCH -> ((CondBranchInstruction) inst).getOperands().forEach(operand -> forEachUse(operand, consumer));
+            case PUTFIELD -> {
+                var putField = (PutFieldInstruction) inst;
+                forEachUse(putField.getObject(), consumer);
+                forEachUse(putField.getValue(), consumer);
+            }
+            case GETFIELD -> forEachUse(((GetFieldInstruction) inst).getObject(), consumer);
+            case UNARYOPER -> forEachUse(((UnaryOpInstruction) inst).getOperand(), consumer);
+            case BINARYOPER -> {
+                var binaryOp = (BinaryOpInstruction) inst;
+                forEachUse(binaryOp.getLeftOperand(), consumer);
+                forEachUse(binaryOp.getRightOperand(), consumer);
+            }
+            case NOPER -> forEachUse(((SingleOpInstruction) inst).getSingleOperand(), consumer);
+            case RETURN -> {
+                var returnInst = (ReturnInstruction) inst;
+                if (returnInst.hasReturnValue()) {
+                    forEachUse(returnInst.getOperand(), consumer);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void forEachUse(Element element, Consumer<String> consumer) {
+        if (!(element instanceof Operand operand)) {
+            return;
+        }
+
+        if (isVariable(operand.getName())) {
+            consumer.accept(operand.getName());
+        }
+
+        if (operand instanceof ArrayOperand arrayOperand) {
+            arrayOperand.getIndexOperands().forEach(index -> forEachUse(index, consumer));
+        }
+    }
+
+    /**
+     * @return true if the name is a variable with a register, i.e. not a field, an imported class or a literal
+     */
+    protected boolean isVariable(String name) {
+        var descriptor = method.getVarTable().get(name);
+
+        return descriptor != null && descriptor.getScope() != VarScope.FIELD;
     }
 }
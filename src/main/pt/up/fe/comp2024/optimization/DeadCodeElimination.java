@@ -0,0 +1,214 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+
+import java.util.*;
+
+/**
+ * Removes the instructions of each method that have no effect on its result:
+ * <ul>
+ *     <li>branches on constant conditions, which become gotos or are removed;</li>
+ *     <li>instructions no path from the start of the method reaches, e.g. after a goto or a ret;</li>
+ *     <li>gotos to the instruction right after them;</li>
+ *     <li>assignments of variables that are not live after them, if computing the value cannot throw.</li>
+ * </ul>
+ * Removing an instruction can make others dead, so the removals are repeated until nothing changes. The labels of a
+ * removed instruction move to the instruction after it.
+ */
+public class DeadCodeElimination {
+
+    private final ClassUnit unit;
+
+    public DeadCodeElimination(OllirResult ollirResult) {
+        this.unit = ollirResult.getOllirClass();
+    }
+
+    public void eliminate() {
+        for (var method : unit.getMethods()) {
+            eliminate(method);
+        }
+    }
+
+    private void eliminate(Method method) {
+        boolean changed;
+        do {
+            changed = foldConstantBranches(method);
+
+            OptUtils.buildCFG(method);
+            changed |= removeUnreachable(method);
+            changed |= removeRedundantGotos(method);
+
+            OptUtils.buildCFG(method);
+            changed |= removeDeadStores(method);
+        } while (changed);
+
+        OptUtils.buildCFG(method);
+    }
+
+    private boolean foldConstantBranches(Method method) {
+        var instructions = method.getInstructions();
+        var remove = new boolean[instructions.size()];
+        boolean changed = false;
+
+        for (int i = 0; i < instructions.size(); i++) {
+            if (!(instructions.get(i) instanceof CondBranchInstruction branch)) {
+                continue;
+            }
+
+            var condition = evaluate(branch.getCondition());
+            if (condition == null) {
+                continue;
+            }
+
+            if (condition) {
+                var gotoInst = new GotoInstruction(branch.getLabel());
+                instructions.set(i, gotoInst);
+                method.getLabels().replaceAll((label, inst) -> inst == branch ? gotoInst : inst);
+            } else {
+                remove[i] = true;
+            }
+
+            changed = true;
+        }
+
+        return OptUtils.removeInstructions(method, remove) || changed;
+    }
+
+    private boolean removeUnreachable(Method method) {
+        var instructions = method.getInstructions();
+        if (instructions.isEmpty()) {
+            return false;
+        }
+
+        var reached = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        var worklist = new ArrayDeque<Node>();
+        reached.add(instructions.get(0));
+        worklist.add(instructions.get(0));
+
+        while (!worklist.isEmpty()) {
+            for (var succ : worklist.poll().getSuccessors()) {
+                if (succ instanceof Instruction && reached.add(succ)) {
+                    worklist.add(succ);
+                }
+            }
+        }
+
+        var remove = new boolean[instructions.size()];
+        for (int i = 0; i < instructions.size(); i++) {
+            remove[i] = !reached.contains(instructions.get(i));
+        }
+
+        return OptUtils.removeInstructions(method, remove);
+    }
+
+    private boolean removeRedundantGotos(Method method) {
+        var instructions = method.getInstructions();
+        var remove = new boolean[instructions.size()];
+
+        for (int i = 0; i < instructions.size() - 1; i++) {
+            remove[i] = instructions.get(i) instanceof GotoInstruction gotoInst
+                    && method.getLabels().get(gotoInst.getLabel()) == instructions.get(i + 1);
+        }
+
+        return OptUtils.removeInstructions(method, remove);
+    }
+
+    private boolean removeDeadStores(Method method) {
+        var liveness = new LivenessAnalysis(method);
+        var instructions = method.getInstructions();
+        var remove = new boolean[instructions.size()];
+
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+            var defs = liveness.getDefs(inst);
+
+            if (!defs.isEmpty() && !liveness.getLiveOut(inst).get(defs.nextSetBit(0))
+                    && canRemove(((AssignInstruction) inst).getRhs())) {
+                remove[i] = true;
+            }
+        }
+
+        return OptUtils.removeInstructions(method, remove);
+    }
+
+    /**
+     * @return true if computing the value has no side effects and cannot throw, e.g. it is not a call, an array
+     * access or a division that may be by zero
+     */
+    private static boolean canRemove(Instruction rhs) {
+        return switch (rhs.getInstType()) {
+            case NOPER -> !(((SingleOpInstruction) rhs).getSingleOperand() instanceof ArrayOperand);
+            case UNARYOPER -> !(((UnaryOpInstruction) rhs).getOperand() instanceof ArrayOperand);
+            case BINARYOPER -> {
+                var binaryOp = (BinaryOpInstruction) rhs;
+                var left = binaryOp.getLeftOperand();
+                var right = binaryOp.getRightOperand();
+
+                var divisor = getValue(right);
+                boolean mayDivideByZero = binaryOp.getOperation().getOpType() == OperationType.DIV
+                        && (divisor == null || divisor == 0);
+
+                yield !(left instanceof ArrayOperand) && !(right instanceof ArrayOperand) && !mayDivideByZero;
+            }
+            case GETFIELD -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @return the value of a condition on literals, or null if it is not constant
+     */
+    private static Boolean evaluate(Instruction condition) {
+        if (condition instanceof SingleOpInstruction singleOp) {
+            var value = getValue(singleOp.getSingleOperand());
+            return value == null ? null : value != 0;
+        }
+
+        if (condition instanceof UnaryOpInstruction unaryOp
+                && unaryOp.getOperation().getOpType() == OperationType.NOTB) {
+            var value = getValue(unaryOp.getOperand());
+            return value == null ? null : value == 0;
+        }
+
+        if (condition instanceof BinaryOpInstruction binaryOp) {
+            var left = getValue(binaryOp.getLeftOperand());
+            var right = getValue(binaryOp.getRightOperand());
+            if (left == null || right == null) {
+                return null;
+            }
+
+            return switch (binaryOp.getOperation().getOpType()) {
+                case LTH -> left < right;
+                case GTH -> left > right;
+                case LTE -> left <= right;
+                case GTE -> left >= right;
+                case EQ -> left.equals(right);
+                case NEQ -> !left.equals(right);
+                case ANDB -> left != 0 && right != 0;
+                case ORB -> left != 0 || right != 0;
+                default -> null;
+            };
+        }
+
+        return null;
+    }
+
+    private static Integer getValue(Element element) {
+        if (!(element instanceof LiteralElement literal)) {
+            return null;
+        }
+
+        return switch (literal.getLiteral()) {
+            case "true" -> 1;
+            case "false" -> 0;
+            default -> {
+                try {
+                    yield Integer.parseInt(literal.getLiteral());
+                } catch (NumberFormatException e) {
+                    yield null;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package pt.up.fe.comp2024.optimization;
+
+import java.util.Collection;
+
+/**
+ * Undirected graph of the variables of a method, where two variables are connected if they are live at the same
+ * time and so cannot share a register. Variables are the numbers given by {@link LivenessAnalysis}.
+ */
+public class InterferenceGraph {
+
+    private final BitVector[] adjacency;
+    private final int[] degrees;
+
+    public InterferenceGraph(int numVariables) {
+        this.adjacency = new BitVector[numVariables];
+        this.degrees = new int[numVariables];
+
+        for (int i = 0; i < numVariables; i++) {
+            adjacency[i] = new BitVector(numVariables);
+        }
+    }
+
+    /**
+     * Builds the graph from the liveness of the variables: a variable interferes with every variable live after
+     * the instructions that assign it, except the variable it is copied from, since both hold the same value. The
+     * variables live when the method starts, e.g. the parameters, all interfere with each other.
+     *
+     * @param liveness liveness of the method
+     * @param atEntry variables that hold a value when the method starts, such as 'this' and the parameters
+     */
+    public static InterferenceGraph build(LivenessAnalysis liveness, Collection<Integer> atEntry) {
+        var graph = new InterferenceGraph(liveness.getVariables().size());
+
+        var liveAtEntry = new BitVector(liveness.getLiveAtEntry());
+        atEntry.forEach(liveAtEntry::set);
+        for (int var1 = liveAtEntry.nextSetBit(0); var1 >= 0; var1 = liveAtEntry.nextSetBit(var1 + 1)) {
+            for (int var2 = liveAtEntry.nextSetBit(var1 + 1); var2 >= 0; var2 = liveAtEntry.nextSetBit(var2 + 1)) {
+                graph.addEdge(var1, var2);
+            }
+        }
+
+        for (var inst : liveness.getInstructions()) {
+            var defs = liveness.getDefs(inst);
+            var liveOut = liveness.getLiveOut(inst);
+            int source = liveness.getCopySource(inst);
+
+            for (int def = defs.nextSetBit(0); def >= 0; def = defs.nextSetBit(def + 1)) {
+                for (int live = liveOut.nextSetBit(0); live >= 0; live = liveOut.nextSetBit(live + 1)) {
+                    if (live != source) {
+                        graph.addEdge(def, live);
+                    }
+                }
+            }
+        }
+
+        return graph;
+    }
+
+    public int size() {
+        return adjacency.length;
+    }
+
+    public void addEdge(int var1, int var2) {
+        if (var1 == var2 || adjacency[var1].get(var2)) {
+            return;
+        }
+
+        adjacency[var1].set(var2);
+        adjacency[var2].set(var1);
+        degrees[var1]++;
+        degrees[var2]++;
+    }
+
+    public boolean interferes(int var1, int var2) {
+        return adjacency[var1].get(var2);
+    }
+
+    /**
+     * Merges the second variable into the first, which then interferes with the neighbours of both. The second
+     * variable is left with no neighbours.
+     */
+    public void merge(int into, int from) {
+        var neighbours = adjacency[from];
+        for (int neighbour = neighbours.nextSetBit(0); neighbour >= 0;
+             neighbour = neighbours.nextSetBit(neighbour + 1)) {
+            adjacency[neighbour].clear(from);
+            degrees[neighbour]--;
+            addEdge(into, neighbour);
+        }
+
+        neighbours.clearAll();
+        degrees[from] = 0;
+    }
+
+    public BitVector getNeighbours(int variable) {
+        return adjacency[variable];
+    }
+
+    public int getDegree(int variable) {
+        return degrees[variable];
+    }
+}
@@ -4,34 +4,74 @@ import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ast2jasmin.AstToJasmin;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.metrics.Metrics;
+import pt.up.fe.comp2024.output.OutputSink;
 
 import java.util.Collections;
 import java.util.*;
 
 public class JmmOptimizationImpl implements JmmOptimization {
 
+    private final OutputSink sink;
+
+    public JmmOptimizationImpl() {
+        this(OutputSink.NONE);
+    }
+
+    /**
+     * @param sink Where the generated OLLIR code is written
+     */
+    public JmmOptimizationImpl(OutputSink sink) {
+        this.sink = sink;
+    }
+
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
 
         var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
-        var ollirCode = visitor.visit(semanticsResult.getRootNode());
-        System.out.println("The OLLIR code is as follows:");
-        System.out.println(ollirCode);
-        System.out.println("<----------------------------->");
-        return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+        var ollirCode = Metrics.measure("ollir.generation", () -> visitor.visit(semanticsResult.getRootNode()));
+        sink.write(semanticsResult.getSymbolTable().getClassName(), OutputSink.Representation.OLLIR, ollirCode);
+
+        // The OLLIR library parses the code back into the class the backend works on
+        return Metrics.measure("ollir.parsing",
+                () -> new OllirResult(semanticsResult, ollirCode, Collections.emptyList()));
     }
 
     @Override
     public JmmSemanticsResult optimize(JmmSemanticsResult semanticsResult) {
-        // TODO: To implement for CP3
-        return JmmOptimization.super.optimize(semanticsResult);
+        if (!CompilerConfig.getOptimize(semanticsResult.getConfig())) {
+            return semanticsResult;
+        }
+
+        var rootNode = semanticsResult.getRootNode();
+        var propagation = new ConstantPropagation(semanticsResult.getSymbolTable());
+        var folding = new ConstantFolding();
+
+        // Folding can turn an assignment into one of a literal, which can then be propagated, and so on
+        boolean changed;
+        do {
+            changed = propagation.visit(rootNode);
+            changed |= folding.visit(rootNode);
+        } while (changed);
+
+        return semanticsResult;
     }
 
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
-        int max_registers = Integer.parseInt(ollirResult.getConfig().getOrDefault("registerAllocation", "-1"));
-        RegisterAllocator optimizer = new RegisterAllocator(ollirResult, max_registers);
-        optimizer.allocateReg();
+        if (CompilerConfig.getOptimize(ollirResult.getConfig())) {
+            new DeadCodeElimination(ollirResult).eliminate();
+            new CommonSubexpressionElimination(ollirResult).eliminate();
+            new CopyCoalescing(ollirResult).coalesce();
+        }
+
+        // Without '-r', the variables keep the registers given when the OLLIR code was parsed
+        int max_registers = CompilerConfig.getRegisterAllocation(ollirResult.getConfig());
+        if (max_registers >= 0) {
+            RegisterAllocator optimizer = new RegisterAllocator(ollirResult, max_registers);
+            optimizer.allocateReg();
+        }
 
         return ollirResult;
     }
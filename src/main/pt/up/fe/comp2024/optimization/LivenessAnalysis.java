@@ -0,0 +1,109 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+
+import java.util.*;
+
+/**
+ * Backward analysis of the variables that are live at each instruction, i.e. that may be read later before being
+ * assigned again. Variables are numbered in the order of their registers, see {@link #getVariable(int)}.
+ */
+public class LivenessAnalysis extends DataAnalysis {
+
+    private final List<String> variables;
+    private final Map<String, Integer> variableIndexes;
+
+    private final BitVector[] uses;
+    private final BitVector[] defs;
+
+    public LivenessAnalysis(Method method) {
+        super(method, Direction.BACKWARD, Meet.UNION);
+
+        this.variables = method.getVarTable().entrySet().stream()
+                .filter(entry -> entry.getValue().getScope() != VarScope.FIELD)
+                .sorted(Comparator.comparingInt(entry -> entry.getValue().getVirtualReg()))
+                .map(Map.Entry::getKey)
+                .toList();
+
+        this.variableIndexes = new HashMap<>();
+        for (int i = 0; i < variables.size(); i++) {
+            variableIndexes.put(variables.get(i), i);
+        }
+
+        this.uses = new BitVector[instructions.size()];
+        this.defs = new BitVector[instructions.size()];
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+
+            var instUses = new BitVector(variables.size());
+            forEachUse(inst, use -> instUses.set(variableIndexes.get(use)));
+            uses[i] = instUses;
+
+            defs[i] = new BitVector(variables.size());
+            var def = getDef(inst);
+            if (def != null) {
+                defs[i].set(variableIndexes.get(def));
+            }
+        }
+
+        solve(variables.size());
+    }
+
+    @Override
+    protected void computeTransfer(int inst, BitVector gen, BitVector kill) {
+        gen.copyFrom(uses[inst]);
+        kill.copyFrom(defs[inst]);
+    }
+
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    public String getVariable(int index) {
+        return variables.get(index);
+    }
+
+    public int getVariableIndex(String variable) {
+        return variableIndexes.get(variable);
+    }
+
+    public BitVector getUses(Instruction inst) {
+        return uses[getIndex(inst)];
+    }
+
+    public BitVector getDefs(Instruction inst) {
+        return defs[getIndex(inst)];
+    }
+
+    public BitVector getLiveIn(Instruction inst) {
+        return getIn(inst);
+    }
+
+    public BitVector getLiveOut(Instruction inst) {
+        return getOut(inst);
+    }
+
+    /**
+     * @return the variable the instruction copies into the one it assigns, e.g. 'b' for 'a.i32 :=.i32 b.i32', or
+     * -1 if it is not a copy between variables
+     */
+    public int getCopySource(Instruction inst) {
+        if (getDef(inst) == null || !(((AssignInstruction) inst).getRhs() instanceof SingleOpInstruction singleOp)) {
+            return -1;
+        }
+
+        if (singleOp.getSingleOperand() instanceof Operand operand && !(operand instanceof ArrayOperand)
+                && isVariable(operand.getName())) {
+            return variableIndexes.get(operand.getName());
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the variables live when the method starts, i.e. read before being assigned
+     */
+    public BitVector getLiveAtEntry() {
+        return instructions.isEmpty() ? new BitVector(variables.size()) : getIn(instructions.get(0));
+    }
+}
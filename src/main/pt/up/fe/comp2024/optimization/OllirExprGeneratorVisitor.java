@@ -4,10 +4,11 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ollir.OllirUtils;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.ScopedSymbol;
 
 import java.util.ArrayList;
 
@@ -16,7 +17,7 @@ import static pt.up.fe.comp2024.ast.Kind.*;
 /**
  * Generates OLLIR code from JmmNodes that are expressions.
  */
-public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExprResult> {
+public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult> {
 
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
@@ -24,13 +25,14 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private static final String NL = "\n";
 
     private final SymbolTable table;
+    private final TempGenerator temps;
 
-    private int andCount = 0;
     private int varargsCount = 0;
     private int arraysCount = 0;
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    public OllirExprGeneratorVisitor(SymbolTable table, TempGenerator temps) {
         this.table = table;
+        this.temps = temps;
     }
 
     @Override
@@ -46,6 +48,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         addVisit(LENGTH_EXPR, this::visitLenghtExpr);
         addVisit(ARRAY_ACCESS, this::visitArrayAccess);
         addVisit(ARRAY_LITERAL, this::visitArrayLiteral);
+        addVisit(PRIORITY, this::visitPriority);
 
         setDefaultVisit(this::defaultVisit);
     }
@@ -72,6 +75,10 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         return new OllirExprResult(code, child.getComputation());
     }
 
+    private OllirExprResult visitPriority(JmmNode node, Void unused) {
+        return visit(node.getJmmChild(0));
+    }
+
     private OllirExprResult visitBinExpr(JmmNode node, Void unused) {
 
         var lhs = visit(node.getJmmChild(0));
@@ -81,12 +88,13 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         Type type = TypeUtils.getExprType(node, table);
 
         if (node.get("op").equals("&&")) {
-            String tempReg = OptUtils.getTemp();
+            String tempReg = temps.getTemp();
+            int andCount = temps.getNextLabelNum();
 
+            computation.append(lhs.getComputation());
             computation.append("if(").append(lhs.getCode()).append(") goto ")
                     .append("true_").append(andCount).append(END_STMT);
 
-            computation.append(lhs.getComputation());
             computation.append(tempReg).append(".bool").append(SPACE).append(ASSIGN).append(".bool")
                     .append(SPACE).append("0.bool").append(END_STMT);
 
@@ -100,7 +108,6 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
             computation.append("end_").append(andCount).append(":").append(NL);
 
-            this.andCount++;
             return new OllirExprResult(tempReg + ".bool", computation);
         }
 
@@ -108,10 +115,9 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         computation.append(rhs.getComputation());
 
         String code;
-        if (Kind.check(node.getParent(), BINARY_EXPR, METHOD_DECL)) {
-            Type resType = TypeUtils.getExprType(node, table);
-            String resOllirType = OptUtils.toOllirType(resType);
-            code = OptUtils.getTemp() + resOllirType;
+        if (Kind.check(node.getParent(), BINARY_EXPR, METHOD_DECL, PRIORITY)) {
+            String resOllirType = OptUtils.toOllirType(type);
+            code = temps.getTemp() + resOllirType;
 
             computation.append(code).append(SPACE)
                     .append(ASSIGN).append(resOllirType).append(SPACE)
@@ -134,18 +140,14 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         if (type == null) return OllirExprResult.EMPTY;
 
         var method = node.getAncestor(METHOD_DECL).get();
+        var symbol = TypeUtils.resolveVar(id, method.get("name"), table);
 
-        boolean isField = table.getFields().stream()
-                .anyMatch(f -> f.getName().equals(id)) &&
-                table.getParameters(method.get("name")).stream()
-                        .noneMatch(p -> p.getName().equals(id)) &&
-                table.getLocalVariables(method.get("name")).stream()
-                .noneMatch(l -> l.getName().equals(id));
+        boolean isField = symbol.map(ScopedSymbol::isField).orElse(false);
 
         String typeCode = OptUtils.toOllirType(type);
 
         if (isField) {
-            String tempReg = OptUtils.getTemp();
+            String tempReg = temps.getTemp();
             StringBuilder computation = new StringBuilder();
             computation.append(tempReg)
                     .append(typeCode).append(SPACE).append(ASSIGN).append(typeCode).append(SPACE)
@@ -155,11 +157,8 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
         StringBuilder code = new StringBuilder();
 
-        for (int i = 0; i < table.getParameters(method.get("name")).size(); i++) {
-            var param = table.getParameters(method.get("name")).get(i);
-            if (param.getName().equals(id)) {
-                code.append("$").append(i + 1).append(".");
-            }
+        if (symbol.isPresent() && symbol.get().isParam()) {
+            code.append("$").append(symbol.get().getParamIndex() + 1).append(".");
         }
         code.append(id).append(typeCode);
 
@@ -217,7 +216,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
                         .append("[").append(i - funcParams.size() + 1).append(".i32].i32")
                         .append(SPACE).append(ASSIGN).append(".i32").append(SPACE).append(visiting.getCode()).append(END_STMT);
             } else if (Kind.check(param, BINARY_EXPR, METHOD_EXPR, NEW_CLASS, ARRAY_ACCESS, NEW_ARRAY)) {
-                var temp = OptUtils.getTemp();
+                var temp = temps.getTemp();
                 var type = OptUtils.toOllirType(TypeUtils.getExprType(param, table));
 
                 computation.append(temp).append(type).append(SPACE)
@@ -253,7 +252,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
         if (Kind.check(node.getParent(), BINARY_EXPR)) {
             var funcType = OptUtils.toOllirType(table.getReturnType(funcName));
-            var tempReg = OptUtils.getTemp();
+            var tempReg = temps.getTemp();
 
             computation.append(tempReg)
                     .append(funcType).append(SPACE).append(ASSIGN).append(funcType).append(SPACE)
@@ -272,7 +271,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
     private OllirExprResult visitNewArray(JmmNode node, Void unused) {
         var sizeCode = visit(node.getJmmChild(0)).getCode();
-        String tempReg = OptUtils.getTemp();
+        String tempReg = temps.getTemp();
 
         StringBuilder computation = new StringBuilder();
         computation.append(tempReg).append(".i32").append(SPACE).append(ASSIGN)
@@ -285,7 +284,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
     private OllirExprResult visitLenghtExpr(JmmNode node, Void unused) {
         var array = visit(node.getJmmChild(0));
-        String tempReg = OptUtils.getTemp();
+        String tempReg = temps.getTemp();
 
         StringBuilder computation = new StringBuilder();
         computation.append(array.getComputation());
@@ -307,7 +306,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         computation.append(index.getComputation());
 
         if (Kind.check(node.getJmmChild(1), METHOD_EXPR, BINARY_EXPR, ARRAY_ACCESS)) {
-            var tempReg = OptUtils.getTemp();
+            var tempReg = temps.getTemp();
 
             computation.append(tempReg).append(".i32").append(SPACE).append(ASSIGN).append(".i32").append(SPACE)
                     .append(index.getCode()).append(END_STMT);
@@ -8,6 +8,7 @@ import pt.up.fe.comp.jmm.ollir.OllirUtils;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.ScopedSymbol;
 
 import java.nio.charset.StandardCharsets;
 
@@ -30,11 +31,14 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private final SymbolTable table;
 
+    private final TempGenerator temps;
+
     private final OllirExprGeneratorVisitor exprVisitor;
 
     public OllirGeneratorVisitor(SymbolTable table) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.temps = new TempGenerator(table);
+        exprVisitor = new OllirExprGeneratorVisitor(table, temps);
     }
 
 
@@ -94,12 +98,10 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(rhs.getComputation());
 
         var method = jmmNode.getAncestor(METHOD_DECL).get();
+        var symbol = TypeUtils.resolveVar(lhs, method.get("name"), table);
 
-        for (int i = 0; i < table.getParameters(method.get("name")).size(); i++) {
-            var param = table.getParameters(method.get("name")).get(i);
-            if (param.getName().equals(lhs)) {
-                code.append("$").append(i + 1).append(".");
-            }
+        if (symbol.isPresent() && symbol.get().isParam()) {
+            code.append("$").append(symbol.get().getParamIndex() + 1).append(".");
         }
 
         code.append(lhs).append("[").append(idx.getCode()).append("].i32").append(SPACE)
@@ -114,12 +116,10 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         boolean flag = false;
         String new_rhs = null;
 
-        boolean isField = table.getFields().stream()
-                .anyMatch(f -> f.getName().equals(lhs)) &&
-                table.getParameters(node.getAncestor(METHOD_DECL).get().get("name")).stream()
-                        .noneMatch(f -> f.getName().equals(lhs))
-                && table.getLocalVariables(node.getAncestor(METHOD_DECL).get().get("name")).stream()
-                .noneMatch(f -> f.getName().equals(lhs));
+        var method = node.getAncestor(METHOD_DECL).get();
+        boolean isField = TypeUtils.resolveVar(lhs, method.get("name"), table)
+                .map(ScopedSymbol::isField)
+                .orElse(false);
 
         StringBuilder code = new StringBuilder();
 
@@ -130,10 +130,9 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
             for (var param : check) {
                 if (param.getKind().equals("BinaryExpr")) {
                     var xpr = exprVisitor.visit(param);
-                    var tmp = OptUtils.getTemp();
+                    var tmp = temps.getTemp();
                     if (!xpr.getComputation().isEmpty()) {
                         code.append(xpr.getComputation());
-                        System.out.println(xpr.getComputation());
                     }
 
                     Type resType = TypeUtils.getExprType(param, table);
@@ -160,12 +159,9 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         String typeString = OptUtils.toOllirType(thisType);
 
         if (isField) {
-            String temp = OptUtils.getTemp();
-            code.append(temp).append(typeString).append(SPACE).append(ASSIGN);
-            if (!Kind.check(node.getJmmChild(0), BINARY_EXPR)) {
-                code.append(typeString).append(SPACE);
-            }
-            code.append(rhs.getCode()).append(END_STMT);
+            String temp = temps.getTemp();
+            code.append(temp).append(typeString).append(SPACE).append(ASSIGN).append(typeString).append(SPACE)
+                    .append(rhs.getCode()).append(END_STMT);
             code.append("putfield(this, ").append(lhs).append(typeString).append(", ").append(temp).append(typeString).append(").V").append(END_STMT);
         } else {
             code.append(lhs).append(typeString).append(SPACE)
@@ -194,7 +190,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
     private String visitExprStmt(JmmNode node, Void unused) {
-        OllirExprGeneratorVisitor alpha = new OllirExprGeneratorVisitor(this.table);
+        OllirExprGeneratorVisitor alpha = new OllirExprGeneratorVisitor(this.table, temps);
         alpha.buildVisitor();
         var alpha_visit = alpha.visit(node.getJmmChild(0), unused);
         String computation = alpha_visit.getComputation();
@@ -278,28 +274,27 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
             //System.out.println(returnExpr.getKind());
 
             // TODO: Hacky but it should work
-            var exprVisitor = new OllirExprGeneratorVisitor(this.table);
+            var exprVisitor = new OllirExprGeneratorVisitor(this.table, temps);
             exprVisitor.buildVisitor();
             var omega = exprVisitor.visit(returnExpr, unused);
             // System.out.println(omega);
             code.append(omega.getComputation());
 
-            //System.out.println(OptUtils.toOllirType(TypeUtils.getExprType(returnExpr, table)));
+            var returnType = OptUtils.toOllirType(TypeUtils.getExprType(returnExpr, table));
 
-            if (!OptUtils.toOllirType(TypeUtils.getExprType(returnExpr, table)).equals(".i32") && !OptUtils.toOllirType(TypeUtils.getExprType(returnExpr, table)).equals(".bool") && omega.getCode().contains("invokevirtual")) {
-                var funcType = OptUtils.toOllirType(TypeUtils.getExprType(returnExpr, table));
-                var tempReg = OptUtils.getTemp();
+            if (!returnType.equals(".i32") && !returnType.equals(".bool") && omega.getCode().contains("invokevirtual")) {
+                var tempReg = temps.getTemp();
 
                 code.append(tempReg)
-                        .append(funcType).append(SPACE).append(ASSIGN).append(funcType).append(SPACE)
+                        .append(returnType).append(SPACE).append(ASSIGN).append(returnType).append(SPACE)
                         .append(omega.getCode()).append(END_STMT);
 
                 code.append("ret")
                         .append(OptUtils.toOllirType(returnExpr.getParent().getJmmChild(0)))
-                        .append(SPACE).append(tempReg).append(funcType).append(END_STMT);
+                        .append(SPACE).append(tempReg).append(returnType).append(END_STMT);
             } else {
                 code.append("ret")
-                        .append(OptUtils.toOllirType(TypeUtils.getExprType(returnExpr, table)))
+                        .append(returnType)
                         .append(SPACE)
                         .append(omega.getCode())
                         .append(END_STMT);
@@ -328,15 +323,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         computation.append(condition.getComputation());
 
-        if (Kind.check(node.getJmmChild(0), BOOLEAN_LITERAL, VAR_REF_EXPR)) {
-            code.append("if (").append(condition.getCode()).append(") goto ").append(ifLabel).append(END_STMT);
-        } else {
-            var tempVar = OptUtils.getTemp();
-            code.append(tempVar).append(".bool").append(SPACE).append(ASSIGN).append(".bool").append(SPACE)
-                    .append(condition.getCode()).append(END_STMT);
-
-            code.append("if (").append(tempVar).append(".bool) goto ").append(ifLabel).append(END_STMT);
-        }
+        code.append(getCondBranch(node.getJmmChild(0), condition, ifLabel));
 
         code.append(falseBlock);
         code.append("goto end").append(ifLabel).append(END_STMT);
@@ -348,30 +335,21 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
     private String visitWhileStmt(JmmNode node, Void unused) {
-        StringBuilder computation = new StringBuilder();
         StringBuilder code = new StringBuilder();
 
         var condition = exprVisitor.visit(node.getJmmChild(0));
         var block = visit(node.getJmmChild(1));
 
-        computation.append(condition.getComputation());
-
         String whileCond = "whileCond" + this.whileCounter;
         String whileLoop = "whileLoop" + this.whileCounter;
         String whileEnd = "whileEnd" + this.whileCounter;
         this.whileCounter++;
 
+        // The condition is computed again before every iteration
         code.append(whileCond).append(":").append(NL);
+        code.append(condition.getComputation());
 
-        if (Kind.check(node.getJmmChild(0), BOOLEAN_LITERAL, VAR_REF_EXPR)) {
-            code.append("if (").append(condition.getCode()).append(") goto ").append(whileLoop).append(END_STMT);
-        } else {
-            var tempVar = OptUtils.getTemp();
-            code.append(tempVar).append(".bool").append(SPACE).append(ASSIGN).append(".bool").append(SPACE)
-                    .append(condition.getCode()).append(END_STMT);
-
-            code.append("if (").append(tempVar).append(".bool) goto ").append(whileLoop).append(END_STMT);
-        }
+        code.append(getCondBranch(node.getJmmChild(0), condition, whileLoop));
 
         code.append("goto ").append(whileEnd).append(END_STMT);
         code.append(whileLoop).append(":").append(NL);
@@ -379,7 +357,28 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append("goto ").append(whileCond).append(END_STMT);
         code.append(whileEnd).append(":").append(NL);
 
-        return computation.toString() + code;
+        return code.toString();
+    }
+
+    /**
+     * Jumps to the label when the condition is true. Comparisons and negations go straight into the branch, so the
+     * backend can test them without storing the boolean first.
+     */
+    private String getCondBranch(JmmNode conditionNode, OllirExprResult condition, String label) {
+        StringBuilder code = new StringBuilder();
+        String conditionCode = condition.getCode();
+
+        if (!Kind.check(conditionNode, BOOLEAN_LITERAL, VAR_REF_EXPR, BINARY_EXPR, NEGATION)) {
+            var tempVar = temps.getTemp();
+            code.append(tempVar).append(".bool").append(SPACE).append(ASSIGN).append(".bool").append(SPACE)
+                    .append(conditionCode).append(END_STMT);
+
+            conditionCode = tempVar + ".bool";
+        }
+
+        code.append("if (").append(conditionCode).append(") goto ").append(label).append(END_STMT);
+
+        return code.toString();
     }
 
     private String visitBlockStmt(JmmNode node, Void unused) {
@@ -1,30 +1,20 @@
 package pt.up.fe.comp2024.optimization;
 
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.Method;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.Kind;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
 import static pt.up.fe.comp2024.ast.Kind.ARRAY_TYPE;
 import static pt.up.fe.comp2024.ast.Kind.VARARGS_TYPE;
 
 public class OptUtils {
-    private static int tempNumber = -1;
-
-    public static String getTemp() {
-
-        return getTemp("tmp");
-    }
-
-    public static String getTemp(String prefix) {
-
-        return prefix + getNextTempNum();
-    }
-
-    public static int getNextTempNum() {
-
-        tempNumber += 1;
-        return tempNumber;
-    }
 
     public static String toOllirType(JmmNode typeNode) {
 
@@ -54,5 +44,61 @@ public class OptUtils {
         };
     }
 
+    /**
+     * Builds the CFG of the method, dropping the edges of a previous build, so the CFG can be built again after
+     * instructions are removed or replaced. The begin and end nodes keep their old edges, the analyses do not
+     * follow them.
+     */
+    public static void buildCFG(Method method) {
+        for (var inst : method.getInstructions()) {
+            inst.getSuccessors().clear();
+            inst.getPredecessors().clear();
+        }
+
+        method.buildCFG();
+    }
+
+    /**
+     * Removes the given instructions, moving their labels to the next instruction that is kept. Instructions at
+     * the end of the method with labels are kept, since there is no instruction to move them to.
+     *
+     * @return true if any instruction was removed
+     */
+    public static boolean removeInstructions(Method method, boolean[] remove) {
+        var instructions = method.getInstructions();
+
+        var labels = new HashMap<Instruction, List<String>>();
+        for (var label : method.getLabels().entrySet()) {
+            labels.computeIfAbsent(label.getValue(), inst -> new ArrayList<>()).add(label.getKey());
+        }
+
+        var kept = new ArrayList<Instruction>(instructions.size());
+        Instruction next = null;
+        boolean changed = false;
+
+        // Backwards, so the next instruction kept is known when one is removed
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            var inst = instructions.get(i);
+
+            if (remove[i] && (next != null || !labels.containsKey(inst))) {
+                for (var label : labels.getOrDefault(inst, List.of())) {
+                    method.getLabels().put(label, next);
+                }
 
+                changed = true;
+                continue;
+            }
+
+            kept.add(inst);
+            next = inst;
+        }
+
+        if (changed) {
+            Collections.reverse(kept);
+            instructions.clear();
+            instructions.addAll(kept);
+        }
+
+        return changed;
+    }
 }
@@ -0,0 +1,90 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.AssignInstruction;
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.Method;
+
+import java.util.*;
+
+/**
+ * Forward analysis of the assignments that reach each instruction, i.e. that may have set the value a variable has
+ * there. Parameters and variables read before being assigned have no definition.
+ */
+public class ReachingDefinitions extends DataAnalysis {
+
+    // The assignments of variables, a definition is its index in this list
+    private final List<AssignInstruction> definitions;
+    private final List<String> definedVariables;
+    private final int[] definitionOf;
+    private final Map<String, BitVector> definitionsOfVariable;
+
+    public ReachingDefinitions(Method method) {
+        super(method, Direction.FORWARD, Meet.UNION);
+
+        this.definitions = new ArrayList<>();
+        this.definedVariables = new ArrayList<>();
+        this.definitionOf = new int[instructions.size()];
+
+        for (int i = 0; i < instructions.size(); i++) {
+            var inst = instructions.get(i);
+            var def = getDef(inst);
+
+            definitionOf[i] = def == null ? -1 : definitions.size();
+            if (def != null) {
+                definitions.add((AssignInstruction) inst);
+                definedVariables.add(def);
+            }
+        }
+
+        this.definitionsOfVariable = new HashMap<>();
+        for (int def = 0; def < definitions.size(); def++) {
+            definitionsOfVariable.computeIfAbsent(definedVariables.get(def), variable -> new BitVector(definitions.size()))
+                    .set(def);
+        }
+
+        solve(definitions.size());
+    }
+
+    @Override
+    protected void computeTransfer(int inst, BitVector gen, BitVector kill) {
+        int def = definitionOf[inst];
+        if (def < 0) {
+            return;
+        }
+
+        // Assigning a variable kills every other assignment of it
+        kill.copyFrom(definitionsOfVariable.get(definedVariables.get(def)));
+        gen.set(def);
+    }
+
+    public List<AssignInstruction> getDefinitions() {
+        return definitions;
+    }
+
+    /**
+     * @return the definitions that reach the instruction, as indexes in {@link #getDefinitions()}
+     */
+    public BitVector getReachingIn(Instruction inst) {
+        return getIn(inst);
+    }
+
+    /**
+     * @return the assignments of the variable that may have set its value right before the instruction
+     */
+    public List<AssignInstruction> getReachingDefinitions(Instruction inst, String variable) {
+        var ofVariable = definitionsOfVariable.get(variable);
+        if (ofVariable == null) {
+            return List.of();
+        }
+
+        var reaching = new BitVector(ofVariable);
+        reaching.and(getIn(inst));
+
+        var result = new ArrayList<AssignInstruction>();
+        for (int def = reaching.nextSetBit(0); def >= 0; def = reaching.nextSetBit(def + 1)) {
+            result.add(definitions.get(def));
+        }
+
+        return result;
+    }
+}
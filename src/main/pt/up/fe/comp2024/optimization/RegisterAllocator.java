@@ -1,25 +1,185 @@
 package pt.up.fe.comp2024.optimization;
 
 import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.VarScope;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
-import java.util.Collections;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
 
+import java.util.*;
+
+/**
+ * Assigns the local variables of each method to as few JVM registers as possible, by coloring the interference
+ * graph given by their liveness.
+ * <p>
+ * 'this' and the parameters keep the registers the JVM passes them in. With a maximum of n registers, methods that
+ * need more are reported as errors. With 0, each method uses the fewest registers the coloring finds.
+ */
 public class RegisterAllocator {
-    private int regs;
-    private ClassUnit unit;
+    private final int regs;
+    private final ClassUnit unit;
+    private final List<Report> reports;
 
     public RegisterAllocator(OllirResult ollirResult, int n) {
         this.unit = ollirResult.getOllirClass();
         this.regs = n;
+        this.reports = ollirResult.getReports();
     }
 
     public void allocateReg() {
-        this.unit.buildCFGs();
-        this.unit.buildVarTables();
-
+        // The var tables are built when the OLLIR code is parsed, the CFGs are not
         for (var m : this.unit.getMethods()) {
-            // TODO if there is time
-            DataAnalysis.runAnalysis(m);
+            OptUtils.buildCFG(m);
+            allocateReg(m);
+        }
+    }
+
+    private void allocateReg(Method method) {
+        var varTable = method.getVarTable();
+        var liveness = new LivenessAnalysis(method);
+        int numVariables = liveness.getVariables().size();
+
+        // Registers fixed by the calling convention, the other variables are colored
+        var precolored = new int[numVariables];
+        var atEntry = new ArrayList<Integer>();
+        var variables = new ArrayList<Integer>();
+
+        for (int i = 0; i < numVariables; i++) {
+            var name = liveness.getVariable(i);
+            var descriptor = varTable.get(name);
+
+            if (descriptor.getScope() == VarScope.PARAMETER || name.equals("this")) {
+                precolored[i] = descriptor.getVirtualReg();
+                atEntry.add(i);
+            } else {
+                precolored[i] = -1;
+                variables.add(i);
+            }
+        }
+
+        var graph = InterferenceGraph.build(liveness, atEntry);
+
+        // 'this' is never overwritten, even when it is not used
+        int firstColor = method.isStaticMethod() ? 0 : 1;
+        int minRegs = firstColor;
+        for (int reg : precolored) {
+            minRegs = Math.max(minRegs, reg + 1);
+        }
+
+        int[] colors;
+        if (regs > 0) {
+            colors = color(graph, precolored, variables, firstColor, regs);
+
+            if (colors == null) {
+                int needed = minRegs;
+                while (color(graph, precolored, variables, firstColor, needed) == null) {
+                    needed++;
+                }
+
+                reports.add(Report.newError(Stage.OPTIMIZATION, -1, -1, "Method '" + method.getMethodName()
+                        + "' needs at least " + needed + " registers, but '-r=" + regs + "' allows only " + regs,
+                        null));
+                return;
+            }
+        } else {
+            int k = minRegs;
+            while ((colors = color(graph, precolored, variables, firstColor, k)) == null) {
+                k++;
+            }
+        }
+
+        for (int variable : variables) {
+            varTable.get(liveness.getVariable(variable)).setVirtualReg(colors[variable]);
+        }
+    }
+
+    /**
+     * Colors the graph with k colors: nodes with fewer than k neighbours can always be colored after their
+     * neighbours, so they are removed first. When there are none, the node with the most neighbours is removed
+     * anyway, in the hope its neighbours end up sharing colors.
+     *
+     * @param firstColor the colors below it are reserved, and only used by precolored nodes
+     * @return the color of each variable, or null if the coloring needs more than k colors
+     */
+    private static int[] color(InterferenceGraph graph, int[] precolored, List<Integer> variables, int firstColor,
+                               int k) {
+        for (int reg : precolored) {
+            if (reg >= k) {
+                return null;
+            }
+        }
+
+        int numNodes = graph.size();
+
+        // Neighbours still in the graph, the reserved colors count as neighbours of every variable
+        var degrees = new int[numNodes];
+        var removed = new boolean[numNodes];
+        var lowDegree = new ArrayDeque<Integer>();
+        for (int variable : variables) {
+            degrees[variable] = graph.getDegree(variable) + firstColor;
+            if (degrees[variable] < k) {
+                lowDegree.add(variable);
+            }
+        }
+
+        var stack = new ArrayDeque<Integer>(variables.size());
+        while (stack.size() < variables.size()) {
+            int next = -1;
+
+            while (!lowDegree.isEmpty() && next < 0) {
+                int candidate = lowDegree.poll();
+                if (!removed[candidate]) {
+                    next = candidate;
+                }
+            }
+
+            if (next < 0) {
+                for (int variable : variables) {
+                    if (!removed[variable] && (next < 0 || degrees[variable] > degrees[next])) {
+                        next = variable;
+                    }
+                }
+            }
+
+            removed[next] = true;
+            stack.push(next);
+
+            var neighbours = graph.getNeighbours(next);
+            for (int neighbour = neighbours.nextSetBit(0); neighbour >= 0;
+                 neighbour = neighbours.nextSetBit(neighbour + 1)) {
+                if (precolored[neighbour] < 0 && !removed[neighbour] && --degrees[neighbour] == k - 1) {
+                    lowDegree.add(neighbour);
+                }
+            }
         }
+
+        var colors = precolored.clone();
+        var usedColors = new boolean[k];
+        while (!stack.isEmpty()) {
+            int variable = stack.pop();
+
+            Arrays.fill(usedColors, false);
+            var neighbours = graph.getNeighbours(variable);
+            for (int neighbour = neighbours.nextSetBit(0); neighbour >= 0;
+                 neighbour = neighbours.nextSetBit(neighbour + 1)) {
+                if (colors[neighbour] >= 0) {
+                    usedColors[colors[neighbour]] = true;
+                }
+            }
+
+            int color = firstColor;
+            while (color < k && usedColors[color]) {
+                color++;
+            }
+
+            if (color >= k) {
+                return null;
+            }
+
+            colors[variable] = color;
+        }
+
+        return colors;
     }
 }
@@ -0,0 +1,79 @@
+package pt.up.fe.comp2024.optimization;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hands out fresh temporary names and label numbers while generating the OLLIR of one class.
+ * <p>
+ * One instance per compilation, shared by all the visitors of that compilation, so the generated names only depend
+ * on the code being compiled and not on what other compilations (possibly in other threads) have done. A name the
+ * source code declares is never handed out, e.g. a local variable 'tmp0' makes the first temporary 'tmp1', so the
+ * variables of the OLLIR code that are not declared are exactly the temporaries.
+ */
+public class TempGenerator {
+
+    private final Set<String> declaredNames;
+
+    private int tempNumber = -1;
+    private int labelNumber = -1;
+
+    public TempGenerator(SymbolTable table) {
+        this.declaredNames = getDeclaredNames(table);
+    }
+
+    /**
+     * @return the names declared by the class: itself, its superclass, the imports, the fields, and the parameters
+     * and local variables of every method
+     */
+    public static Set<String> getDeclaredNames(SymbolTable table) {
+        var names = new HashSet<String>();
+
+        names.add(table.getClassName());
+        if (table.getSuper() != null) {
+            names.add(table.getSuper());
+        }
+        for (var fullImport : table.getImports()) {
+            names.addAll(List.of(fullImport.split("\\.")));
+        }
+
+        table.getFields().stream().map(Symbol::getName).forEach(names::add);
+        for (var method : table.getMethods()) {
+            table.getParameters(method).stream().map(Symbol::getName).forEach(names::add);
+            table.getLocalVariables(method).stream().map(Symbol::getName).forEach(names::add);
+        }
+
+        return names;
+    }
+
+    public String getTemp() {
+
+        return getTemp("tmp");
+    }
+
+    public String getTemp(String prefix) {
+
+        String temp;
+        do {
+            temp = prefix + getNextTempNum();
+        } while (declaredNames.contains(temp));
+
+        return temp;
+    }
+
+    public int getNextTempNum() {
+
+        tempNumber += 1;
+        return tempNumber;
+    }
+
+    public int getNextLabelNum() {
+
+        labelNumber += 1;
+        return labelNumber;
+    }
+}
@@ -0,0 +1,14 @@
+package pt.up.fe.comp2024.output;
+
+/**
+ * Prints each representation to stdout, between a header and a separator.
+ */
+public class ConsoleSink implements OutputSink {
+
+    @Override
+    public void write(String className, Representation representation, String code) {
+        // A single print, so units compiled in parallel do not interleave
+        System.out.print("The " + representation.getName() + " code of " + className + " is as follows:\n"
+                + code + "\n<----------------------------->\n");
+    }
+}
@@ -0,0 +1,23 @@
+package pt.up.fe.comp2024.output;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+
+/**
+ * Writes each representation to a file in a directory, named after the class, e.g. Foo.ollir and Foo.j. The
+ * directory is only created when the first file is written.
+ */
+public class DirectorySink implements OutputSink {
+
+    private final File dir;
+
+    public DirectorySink(File dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public void write(String className, Representation representation, String code) {
+        SpecsIo.write(new File(dir, className + representation.getExtension()), code);
+    }
+}
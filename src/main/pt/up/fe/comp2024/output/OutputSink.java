@@ -0,0 +1,77 @@
+package pt.up.fe.comp2024.output;
+
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the intermediate representations of a class go, if anywhere.
+ * <p>
+ * By default they are not written at all, so compiling does no console I/O besides the reports. With '-v' they are
+ * printed, and with '-w' they are written to files in the given directory. The sink is built once from the options
+ * and given to the {@link pt.up.fe.comp2024.CompilationPipeline} that compiles with them.
+ */
+public interface OutputSink {
+
+    OutputSink NONE = (className, representation, code) -> {
+    };
+
+    /**
+     * Intermediate representations the compiler can write.
+     */
+    enum Representation {
+        OLLIR("OLLIR", ".ollir"),
+        JASMIN("Jasmin", ".j");
+
+        private final String name;
+        private final String extension;
+
+        Representation(String name, String extension) {
+            this.name = name;
+            this.extension = extension;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * @param className Class the code is of
+     * @param representation What the code is
+     * @param code The code
+     */
+    void write(String className, Representation representation, String code);
+
+    /**
+     * @return the sink asked for with '-v' and '-w', or {@link #NONE} if neither was given
+     */
+    static OutputSink fromConfig(Map<String, String> config) {
+        List<OutputSink> sinks = new ArrayList<>();
+
+        if (CompilerConfig.getVerbose(config)) {
+            sinks.add(new ConsoleSink());
+        }
+        CompilerConfig.getDumpDir(config).ifPresent(dir -> sinks.add(new DirectorySink(dir)));
+
+        if (sinks.isEmpty()) {
+            return NONE;
+        }
+
+        if (sinks.size() == 1) {
+            return sinks.get(0);
+        }
+
+        return (className, representation, code) -> {
+            for (var sink : sinks) {
+                sink.write(className, representation, code);
+            }
+        };
+    }
+}
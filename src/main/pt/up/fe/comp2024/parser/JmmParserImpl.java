@@ -7,6 +7,7 @@ import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.specs.util.SpecsSystem;
 
 import java.util.Collections;
 import java.util.Map;
@@ -26,9 +27,17 @@ import java.util.Map;
 
 public class JmmParserImpl implements JmmParser {
 
+    private static final String DEFAULT_RULE = "program";
+
+    static {
+        // AntlrParser looks up the rule method through SpecsSystem, which caches it in a plain HashMap.
+        // Resolving the default rule once, here, keeps parses running in parallel from writing to that cache.
+        SpecsSystem.getMethod(pt.up.fe.comp2024.JavammParser.class, DEFAULT_RULE);
+    }
+
     @Override
     public String getDefaultRule() {
-        return "program";
+        return DEFAULT_RULE;
     }
 
     @Override
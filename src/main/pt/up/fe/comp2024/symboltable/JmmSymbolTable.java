@@ -8,8 +8,10 @@ import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class JmmSymbolTable implements SymbolTable {
 
@@ -22,6 +24,10 @@ public class JmmSymbolTable implements SymbolTable {
     private final Map<String, List<Symbol>> params;
     private final Map<String, List<Symbol>> locals;
 
+    // Name -> symbol, per method (locals and parameters) and for the whole class (fields)
+    private final Map<String, Map<String, ScopedSymbol>> methodScopes;
+    private final Map<String, ScopedSymbol> fieldScope;
+
     public JmmSymbolTable(String className,
                           String superName,
                           List<String> imports,
@@ -29,7 +35,9 @@ public class JmmSymbolTable implements SymbolTable {
                           List<String> methods,
                           Map<String, Type> returnTypes,
                           Map<String, List<Symbol>> params,
-                          Map<String, List<Symbol>> locals) {
+                          Map<String, List<Symbol>> locals,
+                          Map<String, Map<String, ScopedSymbol>> methodScopes,
+                          Map<String, ScopedSymbol> fieldScope) {
         this.className = className;
         this.superName = superName;
         this.imports = imports;
@@ -38,6 +46,41 @@ public class JmmSymbolTable implements SymbolTable {
         this.returnTypes = returnTypes;
         this.params = params;
         this.locals = locals;
+        this.methodScopes = methodScopes;
+        this.fieldScope = fieldScope;
+    }
+
+    /**
+     * Returns a copy of this table where the local variables (and so the scopes) of the given methods are replaced,
+     * sharing everything else.
+     */
+    JmmSymbolTable withLocals(Map<String, List<Symbol>> changedLocals,
+                              Map<String, Map<String, ScopedSymbol>> changedScopes) {
+        var newLocals = new HashMap<>(locals);
+        newLocals.putAll(changedLocals);
+
+        var newScopes = new HashMap<>(methodScopes);
+        newScopes.putAll(changedScopes);
+
+        return new JmmSymbolTable(className, superName, imports, fields, methods, returnTypes, params, newLocals,
+                newScopes, fieldScope);
+    }
+
+    /**
+     * Resolves a name used inside the given method. Locals hide parameters, which hide fields.
+     *
+     * @return the symbol the name refers to, or empty if it is not declared
+     */
+    public Optional<ScopedSymbol> resolve(String methodSignature, String name) {
+        var methodScope = methodScopes.get(methodSignature);
+        if (methodScope != null) {
+            var symbol = methodScope.get(name);
+            if (symbol != null) {
+                return Optional.of(symbol);
+            }
+        }
+
+        return Optional.ofNullable(fieldScope.get(name));
     }
 
     @Override
@@ -47,8 +47,69 @@ public class JmmSymbolTableBuilder {
         var returnTypes = buildReturnTypes(classDecl);
         var params = buildParams(classDecl);
         var locals = buildLocals(classDecl);
+        var methodScopes = buildMethodScopes(params, locals);
+        var fieldScope = buildFieldScope(fields);
 
-        return new JmmSymbolTable(className, superName, imports, fields, methods, returnTypes, params, locals);
+        return new JmmSymbolTable(className, superName, imports, fields, methods, returnTypes, params, locals,
+                methodScopes, fieldScope);
+    }
+
+    /**
+     * Returns a copy of the given table with the local variables of the given methods rebuilt. Only valid when
+     * nothing but the bodies of those methods changed since the table was built.
+     */
+    public static JmmSymbolTable rebuildLocals(JmmSymbolTable table, List<JmmNode> methods) {
+        Map<String, List<Symbol>> changedLocals = new HashMap<>();
+        Map<String, Map<String, ScopedSymbol>> changedScopes = new HashMap<>();
+
+        for (var method : methods) {
+            var methodName = method.get("name");
+            var locals = getLocalsList(method);
+
+            changedLocals.put(methodName, locals);
+            changedScopes.put(methodName, buildMethodScope(table.getParameters(methodName), locals));
+        }
+
+        return table.withLocals(changedLocals, changedScopes);
+    }
+
+    private static Map<String, Map<String, ScopedSymbol>> buildMethodScopes(Map<String, List<Symbol>> params,
+                                                                            Map<String, List<Symbol>> locals) {
+        Map<String, Map<String, ScopedSymbol>> map = new HashMap<>();
+
+        for (var methodName : params.keySet()) {
+            map.put(methodName, buildMethodScope(params.get(methodName), locals.get(methodName)));
+        }
+
+        return map;
+    }
+
+    /**
+     * Locals hide parameters; when a name is declared twice, the first declaration wins.
+     */
+    private static Map<String, ScopedSymbol> buildMethodScope(List<Symbol> params, List<Symbol> locals) {
+        Map<String, ScopedSymbol> scope = new HashMap<>();
+
+        for (var local : locals) {
+            scope.putIfAbsent(local.getName(), new ScopedSymbol(local, ScopedSymbol.Origin.LOCAL, -1));
+        }
+
+        for (int i = 0; i < params.size(); i++) {
+            var param = params.get(i);
+            scope.putIfAbsent(param.getName(), new ScopedSymbol(param, ScopedSymbol.Origin.PARAM, i));
+        }
+
+        return scope;
+    }
+
+    private static Map<String, ScopedSymbol> buildFieldScope(List<Symbol> fields) {
+        Map<String, ScopedSymbol> scope = new HashMap<>();
+
+        for (var field : fields) {
+            scope.putIfAbsent(field.getName(), new ScopedSymbol(field, ScopedSymbol.Origin.FIELD, -1));
+        }
+
+        return scope;
     }
 
     private static Map<String, Type> buildReturnTypes(JmmNode classDecl) {
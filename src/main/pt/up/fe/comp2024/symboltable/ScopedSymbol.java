@@ -0,0 +1,66 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+/**
+ * A {@link Symbol} as seen from inside a method, together with where it was declared.
+ */
+public class ScopedSymbol {
+
+    public enum Origin {
+        LOCAL,
+        PARAM,
+        FIELD
+    }
+
+    private final Symbol symbol;
+    private final Origin origin;
+    private final int paramIndex;
+
+    public ScopedSymbol(Symbol symbol, Origin origin, int paramIndex) {
+        this.symbol = symbol;
+        this.origin = origin;
+        this.paramIndex = paramIndex;
+    }
+
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public String getName() {
+        return symbol.getName();
+    }
+
+    public Type getType() {
+        return symbol.getType();
+    }
+
+    public Origin getOrigin() {
+        return origin;
+    }
+
+    public boolean isLocal() {
+        return origin == Origin.LOCAL;
+    }
+
+    public boolean isParam() {
+        return origin == Origin.PARAM;
+    }
+
+    public boolean isField() {
+        return origin == Origin.FIELD;
+    }
+
+    /**
+     * @return the position of the parameter in the method signature, starting at 0, or -1 if this is not a parameter
+     */
+    public int getParamIndex() {
+        return paramIndex;
+    }
+
+    @Override
+    public String toString() {
+        return origin + " " + symbol;
+    }
+}
@@ -0,0 +1,134 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchCompilerTest {
+
+    private static final String JASMIN_TESTS = "pt/up/fe/comp/cpf/4_jasmin/";
+
+    private static final List<String> PROGRAMS = List.of("arithmetic/Arithmetic_and.jmm",
+            "arithmetic/ByteCodeIndexes1.jmm", "arrays/ArrayAccess.jmm", "arrays/ArrayInit.jmm",
+            "arrays/ComplexArrayAccess.jmm", "arrays/VarargsAndArrayInit.jmm", "basic/BasicMethodsArray.jmm",
+            "control_flow/IfWhileNested.jmm", "control_flow/SimpleControlFlow.jmm", "control_flow/SwitchStat.jmm",
+            "limits/LocalLimits.jmm");
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void compilesEveryUnitOfDirectory() throws IOException {
+        var srcDir = temp.newFolder("src");
+        CompilerTestUtils.copyResource("programs/Counter.jmm", srcDir);
+        CompilerTestUtils.copyResource("programs/Shapes.jmm", new File(srcDir, "nested"));
+        var outputDir = new File(temp.getRoot(), "out");
+
+        var failed = new BatchCompiler(CompilerConfig.parseArgs(new String[]{"-b=" + srcDir, "-d=" + outputDir})).run();
+
+        assertEquals(0, failed);
+        assertTrue(new File(outputDir, "Counter.j").isFile());
+        assertTrue(new File(outputDir, "Shapes.j").isFile());
+        assertTrue(SpecsIo.read(new File(outputDir, BatchCompiler.SUMMARY_FILENAME)).contains("Compiled 2 of 2 units"));
+    }
+
+    @Test
+    public void compilesUnitsOfManifest() throws IOException {
+        var srcDir = temp.newFolder("src");
+        CompilerTestUtils.copyResource("programs/Counter.jmm", srcDir);
+        CompilerTestUtils.copyResource("programs/Shapes.jmm", srcDir);
+
+        var manifest = new File(srcDir, "units.txt");
+        SpecsIo.write(manifest, "# Only the counter\n\nCounter.jmm\n");
+
+        var failed = new BatchCompiler(CompilerConfig.parseArgs(new String[]{"-b=" + manifest})).run();
+
+        assertEquals(0, failed);
+        assertTrue(new File(srcDir, "Counter.j").isFile());
+        assertFalse(new File(srcDir, "Shapes.j").exists());
+    }
+
+    @Test
+    public void failedUnitsDoNotStopTheBatch() throws IOException {
+        var srcDir = temp.newFolder("src");
+        CompilerTestUtils.copyResource("programs/Counter.jmm", srcDir);
+        SpecsIo.write(new File(srcDir, "Broken.jmm"), "class Broken { public int f() { return true; } }");
+
+        var manifest = new File(srcDir, "units.txt");
+        SpecsIo.write(manifest, "Broken.jmm\nMissing.jmm\nCounter.jmm\n");
+
+        var failed = new BatchCompiler(CompilerConfig.parseArgs(new String[]{"-b=" + manifest})).run();
+
+        assertEquals(2, failed);
+        assertTrue(new File(srcDir, "Counter.j").isFile());
+
+        var summary = SpecsIo.read(new File(srcDir, BatchCompiler.SUMMARY_FILENAME));
+        assertTrue(summary.contains("FAIL " + new File(srcDir, "Broken.jmm")));
+        assertTrue(summary.contains("Could not find input file '" + new File(srcDir, "Missing.jmm") + "'"));
+        assertTrue(summary.contains("Compiled 1 of 3 units"));
+    }
+
+    @Test
+    public void duplicateClassFailsLaterUnit() throws IOException {
+        var srcDir = temp.newFolder("src");
+        var first = CompilerTestUtils.copyResource("programs/Counter.jmm", new File(srcDir, "a"));
+        var second = CompilerTestUtils.copyResource("programs/Counter.jmm", new File(srcDir, "b"));
+        SpecsIo.write(second, SpecsIo.read(second).replace("count + n", "count + n + 1"));
+        var outputDir = new File(temp.getRoot(), "out");
+
+        var failed = new BatchCompiler(CompilerConfig.parseArgs(new String[]{"-b=" + srcDir, "-d=" + outputDir})).run();
+
+        assertEquals(1, failed);
+
+        // The first unit in input order wins
+        assertFalse(SpecsIo.read(new File(outputDir, "Counter.j")).contains("iconst_1"));
+
+        var summary = SpecsIo.read(new File(outputDir, BatchCompiler.SUMMARY_FILENAME));
+        assertTrue(summary.contains("FAIL " + second));
+        assertTrue(summary.contains("Class 'Counter' is also defined in '" + first + "'"));
+    }
+
+    @Test
+    public void outputDoesNotDependOnJobs() throws IOException {
+        var srcDir = temp.newFolder("src");
+        for (var program : PROGRAMS) {
+            SpecsIo.write(new File(srcDir, program), SpecsIo.getResource(JASMIN_TESTS + program));
+        }
+
+        // A class defined twice, the unit reported must not depend on which one finishes first
+        CompilerTestUtils.copyResource("programs/Shapes.jmm", new File(srcDir, "a"));
+        CompilerTestUtils.copyResource("programs/Shapes.jmm", new File(srcDir, "z"));
+
+        var sequentialDir = new File(temp.getRoot(), "sequential");
+        var parallelDir = new File(temp.getRoot(), "parallel");
+
+        var sequentialFailed = new BatchCompiler(CompilerConfig.parseArgs(new String[]{"-b=" + srcDir,
+                "-d=" + sequentialDir, "-o", "-j=1"})).run();
+        var parallelFailed = new BatchCompiler(CompilerConfig.parseArgs(new String[]{"-b=" + srcDir,
+                "-d=" + parallelDir, "-o", "-j=4"})).run();
+
+        assertEquals(1, sequentialFailed);
+        assertEquals(sequentialFailed, parallelFailed);
+        assertEquals(List.of(sequentialDir.list()).stream().sorted().toList(),
+                List.of(parallelDir.list()).stream().sorted().toList());
+
+        for (var file : sequentialDir.listFiles()) {
+            assertEquals(file.getName(), withoutTime(SpecsIo.read(file)),
+                    withoutTime(SpecsIo.read(new File(parallelDir, file.getName()))));
+        }
+    }
+
+    /**
+     * @return the contents of an output file without the elapsed time of the summary
+     */
+    private static String withoutTime(String contents) {
+        return contents.replaceAll("units in \\d+ ms", "units");
+    }
+}
@@ -0,0 +1,140 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompilationCacheTest {
+
+    private static final String CODE = CompilerTestUtils.getResource("programs/Counter.jmm");
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void missThenHit() throws IOException {
+        var cache = new CompilationCache(temp.newFolder(), Long.MAX_VALUE);
+        var key = cache.getKey(CODE, CompilerConfig.getDefault());
+
+        assertTrue(cache.get(key).isEmpty());
+        assertEquals(1, cache.getMisses());
+
+        var warning = Report.newWarn(Stage.SEMANTIC, 3, 5, "Unused variable", null);
+        cache.put(key, new CompilationResult("Counter", ".class public Counter", List.of(warning)));
+
+        var result = cache.get(key).orElseThrow();
+        assertEquals(1, cache.getHits());
+        assertEquals("Counter", result.getClassName());
+        assertEquals(".class public Counter", result.getJasminCode());
+        assertEquals(List.of(warning.toString()), result.getReports().stream().map(Report::toString).toList());
+    }
+
+    @Test
+    public void reportExceptionKeepsOnlyItsMessage() throws IOException {
+        var cache = new CompilationCache(temp.newFolder(), Long.MAX_VALUE);
+        var key = cache.getKey(CODE, CompilerConfig.getDefault());
+        var error = Report.newError(Stage.OPTIMIZATION, -1, -1, "Too few registers",
+                new IllegalStateException("Needs 4 registers"));
+        cache.put(key, CompilationResult.failed(List.of(error)));
+
+        var exception = cache.get(key).orElseThrow().getReports().get(0).getException().orElseThrow();
+        assertEquals(RuntimeException.class, exception.getClass());
+        assertEquals("Needs 4 registers", exception.getMessage());
+    }
+
+    @Test
+    public void entriesOutliveTheCache() throws IOException {
+        var cacheDir = temp.newFolder();
+        var key = new CompilationCache(cacheDir, Long.MAX_VALUE).getKey(CODE, CompilerConfig.getDefault());
+        new CompilationCache(cacheDir, Long.MAX_VALUE).put(key, result("Counter"));
+
+        assertTrue(new CompilationCache(cacheDir, Long.MAX_VALUE).get(key).isPresent());
+    }
+
+    @Test
+    public void keyChangesWithCodeAndOptions() throws IOException {
+        var cache = new CompilationCache(temp.newFolder(), Long.MAX_VALUE);
+        var key = cache.getKey(CODE, CompilerConfig.getDefault());
+
+        assertEquals(key, cache.getKey(CODE, CompilerConfig.getDefault()));
+        assertNotEquals(key, cache.getKey(CODE + " ", CompilerConfig.getDefault()));
+        assertNotEquals(key, cache.getKey(CODE, config("-o")));
+        assertNotEquals(key, cache.getKey(CODE, config("-r=2")));
+        assertNotEquals(key, cache.getKey(CODE, config("-e=class")));
+
+        // Options that only say where files go do not change the code
+        assertEquals(key, cache.getKey(CODE, config("-d=out", "-v")));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        var cacheDir = temp.newFolder();
+        var entrySize = result("A").toJson().length();
+        var cache = new CompilationCache(cacheDir, 2L * entrySize);
+        var a = key(cache, "A");
+        var b = key(cache, "B");
+        var c = key(cache, "C");
+
+        cache.put(a, result("A"));
+        cache.put(b, result("B"));
+        assertTrue(cache.get(a).isPresent());
+
+        cache.put(c, result("C"));
+
+        assertTrue(cache.get(a).isPresent());
+        assertTrue(cache.get(b).isEmpty());
+        assertTrue(cache.get(c).isPresent());
+        assertFalse(new File(cacheDir, b + ".json").exists());
+    }
+
+    @Test
+    public void corruptEntryIsRemoved() throws IOException {
+        var cacheDir = temp.newFolder();
+        var cache = new CompilationCache(cacheDir, Long.MAX_VALUE);
+        var key = key(cache, "A");
+        var entryFile = new File(cacheDir, key + ".json");
+
+        var corruptContents = List.of("{\"className\": \"A\", \"reports\": [", "null", "{}",
+                "{\"classFile\": \"?\", \"reports\": []}");
+
+        for (var contents : corruptContents) {
+            cache.put(key, result("A"));
+            SpecsIo.write(entryFile, contents);
+
+            assertTrue(contents, cache.get(key).isEmpty());
+            assertFalse(contents, entryFile.exists());
+        }
+
+        assertEquals(4, cache.getMisses());
+
+        // The key can be used again
+        cache.put(key, result("A"));
+        assertTrue(cache.get(key).isPresent());
+    }
+
+    private static String key(CompilationCache cache, String className) {
+        return cache.getKey("class " + className + " {}", CompilerConfig.getDefault());
+    }
+
+    private static CompilationResult result(String className) {
+        return new CompilationResult(className, ".class public " + className, List.of());
+    }
+
+    private Map<String, String> config(String... args) throws IOException {
+        var arguments = new String[args.length + 1];
+        arguments[0] = "-i=" + CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder());
+        System.arraycopy(args, 0, arguments, 1, args.length);
+
+        return CompilerConfig.parseArgs(arguments);
+    }
+}
@@ -0,0 +1,84 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers for the tests of the compiler driver, which compile resources to files and run the generated classes.
+ */
+public class CompilerTestUtils {
+
+    private static final String RESOURCES = "pt/up/fe/comp2024/";
+
+    /**
+     * @return the contents of a resource of these tests, given relative to pt/up/fe/comp2024
+     */
+    public static String getResource(String resource) {
+        return SpecsIo.getResource(RESOURCES + resource);
+    }
+
+    /**
+     * Copies a resource of these tests to the directory, keeping its file name.
+     *
+     * @return the copied file
+     */
+    public static File copyResource(String resource, File dir) {
+        var file = new File(dir, new File(resource).getName());
+        SpecsIo.write(file, getResource(resource));
+
+        return file;
+    }
+
+    /**
+     * Loads and links a class from a directory of class files, with the classes the test programs import. Linking
+     * runs the bytecode verifier, so an invalid class file throws a {@link VerifyError}.
+     */
+    public static Class<?> load(File classDir, String className) {
+        try {
+            var urls = new URL[]{classDir.toURI().toURL(), new File(TestUtils.getLibsClasspath()).toURI().toURL()};
+            var loader = new URLClassLoader(urls, CompilerTestUtils.class.getClassLoader());
+
+            return Class.forName(className, true, loader);
+        } catch (MalformedURLException | ClassNotFoundException e) {
+            throw new RuntimeException("Could not load class '" + className + "' from '" + classDir + "'", e);
+        }
+    }
+
+    /**
+     * Runs the main method of a class in a new JVM, with the classes the test programs import.
+     *
+     * @return what the program printed to stdout
+     */
+    public static String run(File classDir, String className) {
+        var command = new ArrayList<>(List.of("java", "-cp",
+                classDir.getAbsolutePath() + File.pathSeparator + new File(TestUtils.getLibsClasspath()).getAbsolutePath(),
+                className));
+
+        try {
+            var process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+
+            if (!process.waitFor(30, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                throw new RuntimeException("Running '" + className + "' failed:\n" + output);
+            }
+
+            return output;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
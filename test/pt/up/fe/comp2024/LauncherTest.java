@@ -0,0 +1,55 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class LauncherTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void classFileGoesToOutputDir() throws Exception {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+        var outputDir = new File(temp.getRoot(), "out");
+
+        Launcher.main(new String[]{"-i=" + input, "-e=class", "-d=" + outputDir});
+
+        assertTrue(new File(outputDir, "Counter.class").isFile());
+        assertFalse(new File(input.getParentFile(), "Counter.class").exists());
+        assertEquals("0\n1\n3\n6\n", CompilerTestUtils.run(outputDir, "Counter").replace("\r", ""));
+    }
+
+    @Test
+    public void jasminCodeGoesToOutputDir() throws Exception {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+        var outputDir = new File(temp.getRoot(), "out");
+
+        Launcher.main(new String[]{"-i=" + input, "-d=" + outputDir});
+
+        assertTrue(new File(outputDir, "Counter.j").isFile());
+    }
+
+    @Test
+    public void classFileGoesNextToInputWithoutOutputDir() throws Exception {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+
+        Launcher.main(new String[]{"-i=" + input, "-e=class"});
+
+        assertTrue(new File(input.getParentFile(), "Counter.class").isFile());
+    }
+
+    @Test
+    public void jasminCodeIsNotWrittenWithoutOutputDir() throws Exception {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+
+        Launcher.main(new String[]{"-i=" + input});
+
+        assertArrayEquals(new String[]{"Counter.jmm"}, input.getParentFile().list());
+    }
+}
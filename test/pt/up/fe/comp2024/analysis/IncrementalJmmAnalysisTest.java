@@ -0,0 +1,98 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalJmmAnalysisTest {
+
+    // Methods 'first' and 'third' have errors, 'second' does not
+    private static final String CODE = """
+            import io;
+            class Edited {
+                int field;
+
+                public int first(int x) {
+                    int y;
+                    y = x + true;
+                    return y;
+                }
+
+                public int second(int x) {
+                    return x * 2;
+                }
+
+                public boolean third(boolean p) {
+                    int z;
+                    z = p;
+                    return p;
+                }
+
+                public static void main(String[] args) {
+                    io.println(1);
+                }
+            }
+            """;
+
+    @Test
+    public void reportsMatchFullAnalysisAfterEdit() {
+        var analysis = new IncrementalJmmAnalysis();
+        assertSameReports(CODE, analysis.semanticAnalysis(TestUtils.parse(CODE)).getReports());
+
+        // Adds an error to 'second' and moves the methods after it down a line
+        var edited = CODE.replace("return x * 2;", "int w;\n        return x * false;");
+        assertSameReports(edited, analysis.semanticAnalysis(TestUtils.parse(edited)).getReports());
+
+        // Fixes the error again
+        assertSameReports(CODE, analysis.semanticAnalysis(TestUtils.parse(CODE)).getReports());
+    }
+
+    @Test
+    public void reportsMatchFullAnalysisAfterClassLevelEdit() {
+        var analysis = new IncrementalJmmAnalysis();
+        analysis.semanticAnalysis(TestUtils.parse(CODE));
+
+        // A new field changes what every method can refer to
+        var edited = CODE.replace("int field;", "int field;\n    int z;");
+        assertSameReports(edited, analysis.semanticAnalysis(TestUtils.parse(edited)).getReports());
+        assertEquals(4, analysis.getAnalysedMethods());
+    }
+
+    @Test
+    public void unchangedMethodsAreNotAnalysedAgain() {
+        var analysis = new IncrementalJmmAnalysis();
+        analysis.semanticAnalysis(TestUtils.parse(CODE));
+        assertEquals(4, analysis.getAnalysedMethods());
+        assertEquals(0, analysis.getReusedMethods());
+
+        var edited = CODE.replace("return x * 2;", "return x * 3;");
+        analysis.semanticAnalysis(TestUtils.parse(edited));
+        assertEquals(1, analysis.getAnalysedMethods());
+        assertEquals(3, analysis.getReusedMethods());
+
+        // Moving a method without changing it does not count as a change
+        var moved = edited.replace("class Edited {", "class Edited {\n\n");
+        analysis.semanticAnalysis(TestUtils.parse(moved));
+        assertEquals(0, analysis.getAnalysedMethods());
+        assertEquals(4, analysis.getReusedMethods());
+    }
+
+    private static void assertSameReports(String code, List<Report> incrementalReports) {
+        var fullReports = new JmmAnalysisImpl().semanticAnalysis(TestUtils.parse(code)).getReports();
+
+        assertTrue("Expected the code to have errors", TestUtils.getNumErrors(fullReports) > 0);
+        assertEquals(describe(fullReports), describe(incrementalReports));
+    }
+
+    private static List<String> describe(List<Report> reports) {
+        return reports.stream()
+                .map(report -> report.getType() + " " + report.getStage() + " " + report.getLine() + ":"
+                        + report.getColumn() + " " + report.getMessage())
+                .toList();
+    }
+}
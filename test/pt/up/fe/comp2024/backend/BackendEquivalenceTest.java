@@ -0,0 +1,192 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.*;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerTestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compiles the same programs with the Jasmin and the class file backends, and checks both select the same
+ * instructions and, for programs with a main method, print the same.
+ */
+public class BackendEquivalenceTest {
+
+    private static final String JASMIN_TESTS = "pt/up/fe/comp/cpf/4_jasmin/";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void arithmetic() throws IOException {
+        assertSameCode(JASMIN_TESTS + "arithmetic/ByteCodeIndexes2.jmm", false);
+        assertSameCode(JASMIN_TESTS + "arithmetic/Arithmetic_not.jmm", false);
+        assertSameCode(JASMIN_TESTS + "arithmetic/Arithmetic_and.jmm", false);
+    }
+
+    @Test
+    public void constants() throws IOException {
+        assertSameCode("pt/up/fe/comp/cpf/5_optimizations/inst_selection/InstSelection_iconst_0.jmm", false);
+        assertSameCode("pt/up/fe/comp/cpf/5_optimizations/inst_selection/InstSelection_bipush_6.jmm", false);
+        assertSameCode("pt/up/fe/comp/cpf/5_optimizations/inst_selection/InstSelection_sipush_32767.jmm", false);
+        assertSameCode("pt/up/fe/comp/cpf/5_optimizations/inst_selection/InstSelection_ldc_32768.jmm", false);
+        assertSameCode("pt/up/fe/comp/cp2/apps/HelloWorld.jmm", false);
+    }
+
+    @Test
+    public void increments() throws IOException {
+        assertSameCode("pt/up/fe/comp/cpf/5_optimizations/inst_selection/InstSelection_iinc.jmm", false);
+        assertSameCode("pt/up/fe/comp/cpf/5_optimizations/const_prop/PropWithLoop.jmm", true);
+    }
+
+    @Test
+    public void branches() throws IOException {
+        assertSameCode("pt/up/fe/comp/cpf/5_optimizations/inst_selection/InstSelection_if_lt.jmm", false);
+        assertSameCode(JASMIN_TESTS + "control_flow/SimpleIfElseNot.jmm", false);
+        assertSameCode(JASMIN_TESTS + "control_flow/IfWhileNested.jmm", false);
+        assertSameCode(JASMIN_TESTS + "control_flow/SwitchStat.jmm", true);
+    }
+
+    @Test
+    public void arrays() throws IOException {
+        assertSameCode(JASMIN_TESTS + "arrays/ComplexArrayAccess.jmm", false);
+        assertSameCode(JASMIN_TESTS + "arrays/VarargsAndArrayInit.jmm", false);
+    }
+
+    @Test
+    public void objects() throws IOException {
+        assertSameCode(JASMIN_TESTS + "arrays/ArrayAsArg.jmm", false);
+        assertSameCode("pt/up/fe/comp2024/programs/Counter.jmm", false);
+        assertSameCode("pt/up/fe/comp2024/programs/Shapes.jmm", true);
+    }
+
+    private void assertSameCode(String resource, boolean optimize) throws IOException {
+        var config = new HashMap<String, String>();
+        config.put("optimize", Boolean.toString(optimize));
+
+        OllirResult ollirResult = TestUtils.optimize(SpecsIo.getResource(resource), config);
+        TestUtils.noErrors(ollirResult);
+
+        var jasminGenerator = new JasminGenerator(ollirResult);
+        var jasminResult = new JasminResult(ollirResult, jasminGenerator.build(), jasminGenerator.getReports());
+        var jasminClassFile = jasminResult.compile(temp.newFolder());
+
+        var classDir = temp.newFolder();
+        var classFile = new File(classDir, jasminClassFile.getName());
+        Files.write(classFile.toPath(), new ClassFileGenerator(ollirResult).build());
+
+        assertEquals(resource, getInstructions(Files.readAllBytes(jasminClassFile.toPath())),
+                getInstructions(Files.readAllBytes(classFile.toPath())));
+
+        if (jasminResult.getJasminCode().contains(".method public static main(")) {
+            var className = jasminResult.getClassName();
+            assertEquals(resource, CompilerTestUtils.run(jasminClassFile.getParentFile(), className),
+                    CompilerTestUtils.run(classDir, className));
+        }
+    }
+
+    /**
+     * @return the instructions and the maximum stack size of each method of a class file, with labels numbered in
+     * the order they are used
+     */
+    private static Map<String, List<String>> getInstructions(byte[] classFile) {
+        var methods = new TreeMap<String, List<String>>();
+
+        new ClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                             String[] exceptions) {
+                var instructions = new ArrayList<String>();
+                methods.put(name + descriptor, instructions);
+
+                return new InstructionRecorder(instructions);
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        return methods;
+    }
+
+    private static class InstructionRecorder extends MethodVisitor {
+
+        private final List<String> instructions;
+
+        private final Map<Label, Integer> labels;
+
+        InstructionRecorder(List<String> instructions) {
+            super(Opcodes.ASM9);
+
+            this.instructions = instructions;
+            this.labels = new HashMap<>();
+        }
+
+        private String label(Label label) {
+            return "L" + labels.computeIfAbsent(label, key -> labels.size());
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            instructions.add(Integer.toString(opcode));
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            instructions.add(opcode + " " + operand);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int varIndex) {
+            instructions.add(opcode + " " + varIndex);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            instructions.add(opcode + " " + type);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            instructions.add(opcode + " " + owner + "." + name + " " + descriptor);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            instructions.add(opcode + " " + owner + "." + name + descriptor);
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            instructions.add(opcode + " " + label(label));
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            instructions.add(label(label) + ":");
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            instructions.add("ldc " + value);
+        }
+
+        @Override
+        public void visitIincInsn(int varIndex, int increment) {
+            instructions.add("iinc " + varIndex + " " + increment);
+        }
+
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals) {
+            instructions.add("max stack " + maxStack);
+        }
+    }
+}
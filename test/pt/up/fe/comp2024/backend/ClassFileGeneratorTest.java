@@ -0,0 +1,30 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.CompilerTestUtils;
+import pt.up.fe.comp2024.Launcher;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClassFileGeneratorTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void mergedObjectTypesVerify() throws Exception {
+        // Imports its superclass, and a variable holds an object of either class after an if
+        var input = CompilerTestUtils.copyResource("programs/Shapes.jmm", temp.newFolder("src"));
+        var outputDir = new File(temp.getRoot(), "out");
+
+        Launcher.main(new String[]{"-i=" + input, "-e=class", "-d=" + outputDir});
+
+        // Throws a VerifyError if the stack map frames are wrong
+        CompilerTestUtils.load(outputDir, "Shapes");
+        assertEquals("1\n2\n3\n4\n", CompilerTestUtils.run(outputDir, "Shapes").replace("\r", ""));
+    }
+}
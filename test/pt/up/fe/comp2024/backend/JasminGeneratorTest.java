@@ -0,0 +1,39 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.CompilerTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JasminGeneratorTest {
+
+    @Test
+    public void objectsAreInitialisedByTheirOwnClass() {
+        var result = TestUtils.backend(CompilerTestUtils.getResource("programs/Shapes.jmm"));
+        TestUtils.noErrors(result.getReports());
+
+        // Creates objects of the class and of its superclass inside a loop
+        assertEquals("1\n2\n3\n4", result.run().trim().replace("\r", ""));
+    }
+
+    @Test
+    public void stackLimitFollowsBothPathsOfAStoredComparison() {
+        var result = TestUtils.backend("""
+                class Compare {
+                    public int less(int a, int b) {
+                        boolean c;
+                        int d;
+                        c = a < b;
+                        d = a + b;
+                        return d;
+                    }
+                }
+                """);
+        TestUtils.noErrors(result.getReports());
+
+        // Both operands of the comparison are on the stack, then only the boolean, on either path
+        assertTrue(result.getJasminCode(), result.getJasminCode().contains(".limit stack 2"));
+    }
+}
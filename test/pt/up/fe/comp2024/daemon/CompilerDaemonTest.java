@@ -0,0 +1,83 @@
+package pt.up.fe.comp2024.daemon;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.CompilerTestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class CompilerDaemonTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Thread daemonThread;
+
+    private DaemonClient client;
+
+    @Before
+    public void startDaemon() throws InterruptedException {
+        var daemon = new CompilerDaemon(CompilerConfig.parseArgs(new String[]{"-s", "-p=0"}));
+
+        daemonThread = new Thread(daemon::serve);
+        daemonThread.start();
+
+        client = new DaemonClient(daemon.awaitListening());
+    }
+
+    @After
+    public void stopDaemon() throws InterruptedException {
+        assertTrue(client.shutdown());
+
+        daemonThread.join(10_000);
+        assertFalse(daemonThread.isAlive());
+    }
+
+    @Test
+    public void compilesRequestedFile() throws IOException {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+        var config = CompilerConfig.parseArgs(new String[]{"-i=" + input, "-e=class"});
+
+        var result = client.compile(input.getAbsolutePath(), config).orElseThrow();
+
+        assertTrue(result.isSuccess());
+        assertEquals("Counter", result.getClassName());
+
+        var outputDir = temp.newFolder("out");
+        result.writeTo(outputDir);
+        assertEquals("0\n1\n3\n6\n", CompilerTestUtils.run(outputDir, "Counter").replace("\r", ""));
+    }
+
+    @Test
+    public void reportsErrorsAfterEdit() throws IOException {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+        var config = CompilerConfig.parseArgs(new String[]{"-i=" + input});
+
+        assertTrue(client.compile(input.getAbsolutePath(), config).orElseThrow().isSuccess());
+
+        SpecsIo.write(input, CompilerTestUtils.getResource("programs/Counter.jmm").replace("return", "return true &&"));
+        assertFalse(client.compile(input.getAbsolutePath(), config).orElseThrow().isSuccess());
+    }
+
+    @Test
+    public void ignoresOptionsThatWriteFiles() throws IOException {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+        var dumpDir = new File(temp.getRoot(), "dump");
+        var outputDir = new File(temp.getRoot(), "out");
+        var config = CompilerConfig.parseArgs(new String[]{"-i=" + input, "-w=" + dumpDir, "-d=" + outputDir,
+                "-v"});
+
+        assertTrue(client.compile(input.getAbsolutePath(), config).orElseThrow().isSuccess());
+
+        assertFalse(dumpDir.exists());
+        assertFalse(outputDir.exists());
+    }
+}
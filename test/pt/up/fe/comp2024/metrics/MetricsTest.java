@@ -0,0 +1,128 @@
+package pt.up.fe.comp2024.metrics;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.BatchCompiler;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.CompilerTestUtils;
+import pt.up.fe.comp2024.Launcher;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void nothingIsCollectedWithoutUnit() {
+        assertFalse(Metrics.isEnabled());
+        assertEquals("done", Metrics.measure("parse", () -> "done"));
+    }
+
+    @Test
+    public void stagesAreMeasuredInsideTheirUnit() {
+        var unitMetrics = Metrics.startUnit("Unit.jmm");
+        try (unitMetrics) {
+            Metrics.measure("semantic", () -> Metrics.measure("semantic.passes", () -> {
+            }));
+            Metrics.measure("semantic.passes", () -> {
+            });
+            Metrics.record("cache", new Sample(10, 20, 30));
+        }
+
+        assertFalse(Metrics.isEnabled());
+        assertNotNull(unitMetrics.getTotal());
+        assertEquals(List.of("semantic", "semantic.passes", "cache"), List.copyOf(unitMetrics.getStages().keySet()));
+        assertEquals(new Sample(10, 20, 30), unitMetrics.getStages().get("cache"));
+    }
+
+    @Test
+    public void launcherWritesStagesOfUnit() throws Exception {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+        var metricsFile = new File(temp.getRoot(), "metrics/counter.json");
+
+        Launcher.main(new String[]{"-i=" + input, "-t=" + metricsFile});
+
+        var units = readUnits(metricsFile);
+        assertEquals(1, units.size());
+        assertEquals(input.getAbsolutePath(), units.get(0).get("unit").getAsString());
+
+        var stages = getStages(units.get(0));
+        assertEquals(List.of("parse", "semantic", "optimize", "ollir", "optimizeOllir", "jasmin"),
+                stages.stream().filter(stage -> !stage.contains(".")).toList());
+
+        // A sub-stage comes after the stage it is measured in
+        for (int i = 0; i < stages.size(); i++) {
+            var stage = stages.get(i);
+            if (stage.contains(".")) {
+                var parent = stage.substring(0, stage.lastIndexOf('.'));
+                assertTrue(stage, stages.subList(0, i).contains(parent));
+            }
+        }
+
+        for (var stage : units.get(0).getAsJsonArray("stages")) {
+            assertTrue(stage.getAsJsonObject().get("wallNanos").getAsLong() >= 0);
+        }
+        assertTrue(units.get(0).getAsJsonObject("total").get("wallNanos").getAsLong() > 0);
+    }
+
+    @Test
+    public void batchWritesUnitsInInputOrder() throws IOException {
+        var srcDir = temp.newFolder("src");
+        var counter = CompilerTestUtils.copyResource("programs/Counter.jmm", srcDir);
+        var shapes = CompilerTestUtils.copyResource("programs/Shapes.jmm", srcDir);
+        var manifest = new File(srcDir, "units.txt");
+        SpecsIo.write(manifest, "Shapes.jmm\nCounter.jmm\n");
+        var metricsFile = new File(temp.getRoot(), "metrics.json");
+
+        new BatchCompiler(CompilerConfig.parseArgs(new String[]{"-b=" + manifest, "-t=" + metricsFile, "-j=2"}))
+                .run();
+
+        var units = readUnits(metricsFile);
+        assertEquals(List.of(shapes.getPath(), counter.getPath()),
+                units.stream().map(unit -> new File(unit.get("unit").getAsString()).getPath()).toList());
+    }
+
+    @Test
+    public void cachedUnitOnlyHasCacheStage() throws IOException {
+        var srcDir = temp.newFolder("src");
+        CompilerTestUtils.copyResource("programs/Counter.jmm", srcDir);
+        var cacheDir = new File(temp.getRoot(), "cache");
+        var metricsFile = new File(temp.getRoot(), "metrics.json");
+        var args = new String[]{"-b=" + srcDir, "-c=" + cacheDir, "-t=" + metricsFile};
+
+        new BatchCompiler(CompilerConfig.parseArgs(args)).run();
+        assertTrue(getStages(readUnits(metricsFile).get(0)).contains("parse"));
+
+        new BatchCompiler(CompilerConfig.parseArgs(args)).run();
+        assertEquals(List.of("cache"), getStages(readUnits(metricsFile).get(0)));
+    }
+
+    private static List<JsonObject> readUnits(File metricsFile) {
+        var units = new ArrayList<JsonObject>();
+        for (var unit : JsonParser.parseString(SpecsIo.read(metricsFile)).getAsJsonObject().getAsJsonArray("units")) {
+            units.add(unit.getAsJsonObject());
+        }
+
+        return units;
+    }
+
+    private static List<String> getStages(JsonObject unit) {
+        var stages = new ArrayList<String>();
+        for (var stage : unit.getAsJsonArray("stages")) {
+            stages.add(stage.getAsJsonObject().get("stage").getAsString());
+        }
+
+        return stages;
+    }
+}
@@ -0,0 +1,93 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import org.specs.comp.ollir.AssignInstruction;
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AvailableExpressionsTest {
+
+    @Test
+    public void assigningOperandKillsExpression() {
+        var method = getMethod("straight");
+        var analysis = new AvailableExpressions(method);
+
+        // 'a + b' and 'b + a' are different keys, only the same operands in the same order are the same expression
+        assertEquals(List.of("ADD a b", "ADD b a"), analysis.getExpressions());
+
+        assertFalse(analysis.isAvailable(inst(method, 0), "ADD a b"));
+        assertTrue(analysis.isAvailable(inst(method, 1), "ADD a b"));
+        assertTrue(analysis.isAvailable(inst(method, 2), "ADD a b"));
+
+        // Assigning 'a' kills both, and computing 'a + b' again makes it available
+        assertFalse(analysis.isAvailable(inst(method, 3), "ADD a b"));
+        assertFalse(analysis.isAvailable(inst(method, 3), "ADD b a"));
+        assertTrue(analysis.isAvailable(inst(method, 4), "ADD a b"));
+    }
+
+    @Test
+    public void loopKillsExpressionOfAssignedVariable() {
+        var method = getMethod("loop");
+        var analysis = new AvailableExpressions(method);
+
+        // 'n * 2' is never killed, 'i + 1' is computed before the loop but 'i' changes in its body
+        var head = inst(method, 3);
+        assertTrue(analysis.isAvailable(head, "MUL n #2"));
+        assertFalse(analysis.isAvailable(head, "ADD i #1"));
+
+        assertTrue(analysis.isAvailable(inst(method, 5), "ADD i #1"));
+        assertFalse(analysis.isAvailable(inst(method, 6), "ADD i #1"));
+        assertTrue(analysis.isAvailable(inst(method, 7), "MUL n #2"));
+    }
+
+    @Test
+    public void expressionMustBeComputedOnEveryPath() {
+        var method = getMethod("branches");
+        var analysis = new AvailableExpressions(method);
+
+        var join = inst(method, 5);
+        assertTrue(analysis.isAvailable(join, "MUL a a"));
+        assertFalse(analysis.isAvailable(join, "SUB a #1"));
+    }
+
+    @Test
+    public void storesIntoMemoryKeepExpressions() {
+        var method = getMethod("memory");
+        var analysis = new AvailableExpressions(method);
+
+        // Expressions only read variables, so the array store and the putfield do not change them
+        assertTrue(analysis.isAvailable(inst(method, 5), "ADD v #1"));
+
+        // An array element is never part of an expression, since any array store or call could change it
+        assertNull(AvailableExpressions.getExpression(assign(method, 4).getRhs()));
+        assertEquals(List.of("ADD v #1"), analysis.getExpressions());
+    }
+
+    private static Method getMethod(String name) {
+        var ollirResult = new OllirResult(CompilerTestUtils.getResource("programs/Flow.ollir"),
+                Collections.emptyMap());
+
+        var method = ollirResult.getOllirClass().getMethods().stream()
+                .filter(candidate -> candidate.getMethodName().equals(name))
+                .findFirst()
+                .orElseThrow();
+        OptUtils.buildCFG(method);
+
+        return method;
+    }
+
+    private static Instruction inst(Method method, int index) {
+        return method.getInstructions().get(index);
+    }
+
+    private static AssignInstruction assign(Method method, int index) {
+        return (AssignInstruction) inst(method, index);
+    }
+}
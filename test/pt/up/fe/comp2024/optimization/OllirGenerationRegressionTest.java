@@ -0,0 +1,53 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Programs the OLLIR generation once got wrong. Each is compiled to Jasmin and must print the expected output.
+ */
+public class OllirGenerationRegressionTest {
+
+    private static final String OLLIR = "pt/up/fe/comp/cpf/3_ollir/";
+
+    @Test
+    public void parenthesesAreComputed() {
+        assertOutput(SpecsIo.getResource(OLLIR + "arithmetic/PriorityExpr.jmm"), "15\n14");
+    }
+
+    @Test
+    public void fieldAssignedBinaryExpression() {
+        assertOutput(SpecsIo.getResource(OLLIR + "basic/FieldBinaryAssign.jmm"), "21");
+    }
+
+    @Test(timeout = 30_000)
+    public void deepExpressionIsLinear() {
+        // Every child used to be visited again after its parent, doubling the work at each level
+        var depth = 60;
+        var code = "import io;\nclass Deep {\n    public static void main(String[] args) {\n        int x;\n"
+                + "        x = 1" + " + 1".repeat(depth) + ";\n        io.println(x);\n    }\n}\n";
+
+        assertOutput(code, Integer.toString(depth + 1));
+    }
+
+    @Test
+    public void whileConditionIsComputedEveryIteration() {
+        // A condition computed only once reads past the end of the array instead of stopping at 10
+        assertOutput(SpecsIo.getResource(OLLIR + "control_flow/WhileCondRecomputed.jmm"), "3");
+    }
+
+    @Test
+    public void andComputesLeftSideBeforeTestingIt() {
+        assertOutput(SpecsIo.getResource(OLLIR + "arithmetic/AndLeftFirst.jmm"), "1\n0\n0");
+    }
+
+    private static void assertOutput(String code, String expectedOutput) {
+        var jasminResult = TestUtils.backend(code);
+        TestUtils.noErrors(jasminResult);
+
+        assertEquals(expectedOutput, jasminResult.run().replace("\r", "").strip());
+    }
+}
@@ -0,0 +1,130 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Programs the optimizations once got wrong, compiled with and without them. Each must print the same either way.
+ */
+public class OptimizationRegressionTest {
+
+    private static final String OPTIMIZATIONS = "pt/up/fe/comp/cpf/5_optimizations/";
+
+    @Test
+    public void propagationStopsAtLoopCarriedVariables() {
+        var optimized = assertOutput("const_prop/PropLoopCarried.jmm", "125\n3\n2");
+
+        // 'k' is the same on every iteration and is propagated, 'a' changes and is not
+        CpUtils.matches(optimized, "iconst_3\\s+imul");
+        CpUtils.matches(optimized, "iconst_2\\s+imul");
+    }
+
+    @Test
+    public void tooFewRegistersIsAnError() {
+        for (var optimize : new boolean[]{false, true}) {
+            var config = getConfig(optimize, 4);
+            var ollirResult = TestUtils.optimize(SpecsIo.getResource(OPTIMIZATIONS + "reg_alloc/RegAllocLive.jmm"),
+                    config);
+
+            var errors = ollirResult.getReports().stream()
+                    .filter(report -> report.getType() == ReportType.ERROR)
+                    .toList();
+            assertEquals(1, errors.size());
+            assertTrue(errors.get(0).getMessage().contains("'live' needs at least 5 registers"));
+        }
+    }
+
+    @Test
+    public void registersThatFitAreUsed() {
+        for (var optimize : new boolean[]{false, true}) {
+            for (var registers : new int[]{0, 5, 6}) {
+                var jasminResult = backend("reg_alloc/RegAllocLive.jmm", optimize, registers);
+
+                // 'this', 'n' and the three values live while 'a * b + c' is computed
+                assertEquals("-r=" + registers, 5, getLocals(jasminResult, "live"));
+                assertEquals("-r=" + registers, "11", jasminResult.run().replace("\r", "").strip());
+            }
+        }
+    }
+
+    @Test
+    public void deadCodeKeepsCalls() {
+        var optimized = assertOutput("dead_code/DeadCodeCalls.jmm", "1\n2\n3\n13");
+
+        // The results of the calls are dead, the calls are not
+        var foo = CpUtils.getJasminMethod(optimized, "foo");
+        assertEquals(3, foo.split("invokevirtual DeadCodeCalls/bump", -1).length - 1);
+        assertFalse(foo.contains("iconst_5"));
+    }
+
+    @Test
+    public void coalescingKeepsInterferingVariablesApart() {
+        var optimized = assertOutput("coalescing/CoalesceInterfering.jmm", "12\n813\n26");
+
+        // The temporaries of 'temps' do not interfere with each other and do share registers
+        var original = backend("coalescing/CoalesceInterfering.jmm", false, -1);
+        assertTrue(getLocals(optimized, "temps") < getLocals(original, "temps"));
+    }
+
+    @Test
+    public void commonSubexpressionsAreNotReusedAcrossStores() {
+        var optimized = assertOutput("cse/CseMemory.jmm", "267\n511\n501\n12");
+
+        // Without a store in between, 'n * 3' is computed once
+        var same = CpUtils.getJasminMethod(optimized, "same");
+        assertEquals(1, same.split("imul", -1).length - 1);
+    }
+
+    @Test
+    public void declaredTempIsNotGeneratedNorCoalesced() {
+        assertOutput("coalescing/CoalesceDeclaredTemp.jmm", "7\n5");
+    }
+
+    /**
+     * Checks the program prints the expected output when compiled without optimizations and with '-o'.
+     *
+     * @return the result compiled with '-o'
+     */
+    private static JasminResult assertOutput(String filename, String expectedOutput) {
+        assertEquals(filename, expectedOutput, backend(filename, false, -1).run().replace("\r", "").strip());
+
+        var optimized = backend(filename, true, -1);
+        assertEquals(filename + " with -o", expectedOutput, optimized.run().replace("\r", "").strip());
+
+        return optimized;
+    }
+
+    private static JasminResult backend(String filename, boolean optimize, int registers) {
+        var jasminResult = TestUtils.backend(SpecsIo.getResource(OPTIMIZATIONS + filename),
+                getConfig(optimize, registers));
+        TestUtils.noErrors(jasminResult);
+
+        return jasminResult;
+    }
+
+    private static Map<String, String> getConfig(boolean optimize, int registers) {
+        var config = new HashMap<String, String>();
+        config.put("optimize", Boolean.toString(optimize));
+        config.put("registerAllocation", Integer.toString(registers));
+
+        return config;
+    }
+
+    private static int getLocals(JasminResult jasminResult, String methodName) {
+        var matcher = Pattern.compile("\\.limit\\s+locals\\s+(\\d+)")
+                .matcher(CpUtils.getJasminMethod(jasminResult, methodName));
+        assertTrue(matcher.find());
+
+        return Integer.parseInt(matcher.group(1));
+    }
+}
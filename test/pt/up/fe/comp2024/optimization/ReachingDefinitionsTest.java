@@ -0,0 +1,91 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import org.specs.comp.ollir.AssignInstruction;
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReachingDefinitionsTest {
+
+    @Test
+    public void redefinitionKillsPreviousOne() {
+        var method = getMethod("straight");
+        var analysis = new ReachingDefinitions(method);
+
+        // 'x' is assigned in instructions 0 and 4, 'a' is a parameter assigned in instruction 2
+        assertEquals(List.of(), analysis.getReachingDefinitions(inst(method, 0), "x"));
+        assertEquals(List.of(assign(method, 0)), analysis.getReachingDefinitions(inst(method, 4), "x"));
+        assertEquals(List.of(assign(method, 4)), analysis.getReachingDefinitions(inst(method, 5), "x"));
+
+        assertEquals(List.of(), analysis.getReachingDefinitions(inst(method, 2), "a"));
+        assertEquals(List.of(assign(method, 2)), analysis.getReachingDefinitions(inst(method, 5), "a"));
+        assertEquals(List.of(), analysis.getReachingDefinitions(inst(method, 5), "b"));
+    }
+
+    @Test
+    public void loopDefinitionReachesLoopHead() {
+        var method = getMethod("loop");
+        var analysis = new ReachingDefinitions(method);
+
+        // 'i' is assigned before the loop (0) and at the end of its body (5), the condition is instruction 3
+        var bothDefinitions = List.of(assign(method, 0), assign(method, 5));
+        assertEquals(bothDefinitions, analysis.getReachingDefinitions(inst(method, 3), "i"));
+        assertEquals(bothDefinitions, analysis.getReachingDefinitions(inst(method, 4), "i"));
+        assertEquals(List.of(assign(method, 0)), analysis.getReachingDefinitions(inst(method, 2), "i"));
+        assertEquals(bothDefinitions, analysis.getReachingDefinitions(inst(method, 7), "i"));
+
+        // The body's temporary reaches the head again through the back edge
+        assertEquals(List.of(assign(method, 4)), analysis.getReachingDefinitions(inst(method, 3), "u"));
+    }
+
+    @Test
+    public void definitionsOfBothBranchesReachJoin() {
+        var method = getMethod("branches");
+        var analysis = new ReachingDefinitions(method);
+
+        assertEquals(List.of(assign(method, 1), assign(method, 4)),
+                analysis.getReachingDefinitions(inst(method, 5), "x"));
+        assertEquals(List.of(assign(method, 2)), analysis.getReachingDefinitions(inst(method, 5), "y"));
+    }
+
+    @Test
+    public void storesIntoMemoryDoNotDefineVariables() {
+        var method = getMethod("memory");
+        var analysis = new ReachingDefinitions(method);
+
+        // Neither the array store (2) nor the putfield (3) define a variable, 'f' is a field
+        assertEquals(List.of(assign(method, 0), assign(method, 1), assign(method, 4), assign(method, 5),
+                assign(method, 6)), analysis.getDefinitions());
+        assertEquals(List.of(assign(method, 0)), analysis.getReachingDefinitions(inst(method, 4), "a"));
+        assertEquals(List.of(assign(method, 1)), analysis.getReachingDefinitions(inst(method, 7), "x"));
+        assertEquals(List.of(), analysis.getReachingDefinitions(inst(method, 7), "f"));
+    }
+
+    private static Method getMethod(String name) {
+        var ollirResult = new OllirResult(CompilerTestUtils.getResource("programs/Flow.ollir"),
+                Collections.emptyMap());
+
+        var method = ollirResult.getOllirClass().getMethods().stream()
+                .filter(candidate -> candidate.getMethodName().equals(name))
+                .findFirst()
+                .orElseThrow();
+        OptUtils.buildCFG(method);
+
+        return method;
+    }
+
+    private static Instruction inst(Method method, int index) {
+        return method.getInstructions().get(index);
+    }
+
+    private static AssignInstruction assign(Method method, int index) {
+        return (AssignInstruction) inst(method, index);
+    }
+}
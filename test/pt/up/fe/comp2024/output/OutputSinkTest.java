@@ -0,0 +1,100 @@
+package pt.up.fe.comp2024.output;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.CompilationPipeline;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.CompilerTestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class OutputSinkTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void nothingIsWrittenByDefault() throws IOException {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+
+        assertSame(OutputSink.NONE, OutputSink.fromConfig(CompilerConfig.parseArgs(new String[]{"-i=" + input})));
+
+        var stdout = compile("-i=" + input);
+        assertFalse(stdout.contains("code of Counter"));
+        assertArrayEquals(new String[]{"Counter.jmm"}, input.getParentFile().list());
+    }
+
+    @Test
+    public void verbosePrintsCode() throws IOException {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+
+        var stdout = compile("-i=" + input, "-v");
+
+        assertTrue(stdout.contains("The OLLIR code of Counter is as follows:\n"));
+        assertTrue(stdout.contains("The Jasmin code of Counter is as follows:\n.class"));
+    }
+
+    @Test
+    public void dumpDirGetsFilePerRepresentation() throws IOException {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+        var dumpDir = new File(temp.getRoot(), "dump");
+
+        var stdout = compile("-i=" + input, "-w=" + dumpDir);
+
+        assertFalse(stdout.contains("code of Counter"));
+        assertTrue(SpecsIo.read(new File(dumpDir, "Counter.ollir")).contains("Counter {"));
+        assertTrue(SpecsIo.read(new File(dumpDir, "Counter.j")).startsWith(".class"));
+    }
+
+    @Test
+    public void verboseAndDumpDirBothWrite() throws IOException {
+        var input = CompilerTestUtils.copyResource("programs/Counter.jmm", temp.newFolder("src"));
+        var dumpDir = new File(temp.getRoot(), "dump");
+
+        var stdout = compile("-i=" + input, "-v", "-w=" + dumpDir);
+
+        assertTrue(stdout.contains("The Jasmin code of Counter is as follows:\n"
+                + SpecsIo.read(new File(dumpDir, "Counter.j"))));
+    }
+
+    @Test
+    public void dumpDirIsNotCreatedWithoutCode() throws IOException {
+        var input = new File(temp.newFolder("src"), "Broken.jmm");
+        SpecsIo.write(input, "class Broken { public int f() { return true; } }");
+        var dumpDir = new File(temp.getRoot(), "dump");
+
+        compile("-i=" + input, "-w=" + dumpDir);
+
+        assertFalse(dumpDir.exists());
+    }
+
+    /**
+     * Compiles the input file with the options given, like the launcher does.
+     *
+     * @return what was printed to stdout
+     */
+    private static String compile(String... args) {
+        var config = CompilerConfig.parseArgs(args);
+        var code = SpecsIo.read(CompilerConfig.getInputFile(config).orElseThrow());
+
+        var stdout = new ByteArrayOutputStream();
+        var previous = System.out;
+
+        System.setOut(new PrintStream(stdout, true, StandardCharsets.UTF_8));
+        try {
+            CompilationPipeline.fromConfig(config).compile(code, config);
+        } finally {
+            System.setOut(previous);
+        }
+
+        return stdout.toString(StandardCharsets.UTF_8);
+    }
+}